@@ -0,0 +1,74 @@
+// Draws the height or width arrays of every tile in a chunk from a single quad - see CollisionOverlay.java
+#ifdef GL_ES
+#ifdef GL_FRAGMENT_PRECISION_HIGH
+precision highp float;
+#else
+precision mediump float;
+#endif
+#endif
+
+varying vec4 v_color;
+varying vec2 v_texCoords;
+
+// Tile IDs, one texel per tile. The quad covers one chunk's block of texels. Bound by the SpriteBatch.
+uniform sampler2D u_texture;
+// Collision shapes, one row of TILE_LENGTH texels per shape: r = height, g = width
+uniform sampler2D u_shapes;
+uniform vec2 u_tileIdTextureSize;
+uniform vec2 u_shapeTextureSize;
+uniform float u_shapesPerRow;
+// 0.0 draws height arrays, 1.0 draws width arrays
+uniform float u_widthMode;
+
+const float TILE_LENGTH = 16.0;
+const float TILES_PER_CHUNK = 6.0;
+const vec4 BLACK = vec4(0.0, 0.0, 0.0, 1.0);
+
+float readByte(float channel) {
+    return floor(channel * 255.0 + 0.5);
+}
+
+void main() {
+    vec2 texel = v_texCoords * u_tileIdTextureSize;
+    vec2 tileCell = floor(texel);
+    vec2 inTile = texel - tileCell;
+
+    // Texture rows go downwards, but world co-ordinates go upwards
+    float blockX = floor(inTile.x * TILE_LENGTH);
+    float blockY = floor((1.0 - inTile.y) * TILE_LENGTH);
+    float tileY = TILES_PER_CHUNK - 1.0 - mod(tileCell.y, TILES_PER_CHUNK);
+
+    vec4 idTexel = texture2D(u_texture, (tileCell + 0.5) / u_tileIdTextureSize);
+    float tileId = readByte(idTexel.r) + readByte(idTexel.g) * 256.0;
+
+    // Same layout as the IDs in TileRegistry
+    float flippedHorizontally = mod(tileId, 2.0);
+    float flippedVertically = mod(floor(tileId / 2.0), 2.0);
+    float shape = floor(tileId / 4.0);
+    if (shape < 0.5) discard;
+
+    vec2 shapeOrigin = vec2(mod(shape, u_shapesPerRow) * TILE_LENGTH, floor(shape / u_shapesPerRow));
+
+    if (u_widthMode < 0.5) {
+        // Same as TileRegistry.getHeight()
+        float column = mix(blockX, TILE_LENGTH - 1.0 - blockX, flippedHorizontally);
+        float height = readByte(texture2D(u_shapes, (shapeOrigin + vec2(column, 0.0) + 0.5) / u_shapeTextureSize).r);
+        if (blockY >= height) discard;
+
+        // Black at the start of each tile, otherwise a red gradient for the tile's y position
+        gl_FragColor = blockX < 0.5 ? BLACK : vec4(tileY / TILES_PER_CHUNK, 0.0, 1.0, 1.0);
+    }
+    else {
+        // Width arrays are drawn from the top row downwards, then read like TileRegistry.getWidth()
+        float row = TILE_LENGTH - 1.0 - blockY;
+        row = mix(row, TILE_LENGTH - 1.0 - row, flippedVertically);
+        float width = readByte(texture2D(u_shapes, (shapeOrigin + vec2(row, 0.0) + 0.5) / u_shapeTextureSize).g);
+
+        // Widths are measured from the right of the tile, or from the left if it is flipped horizontally
+        float inside = flippedHorizontally < 0.5 ? step(TILE_LENGTH - width, blockX) : step(blockX + 1.0, width);
+        if (inside < 0.5) discard;
+
+        // Black at the bottom of each tile, otherwise a green gradient for the tile's y position
+        gl_FragColor = blockY < 0.5 ? BLACK : vec4(0.0, tileY / TILES_PER_CHUNK, 1.0, 1.0);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx.benchmarks;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.sonicgdx.EntityStore;
+import com.sonicgdx.VelocitySystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+@State(Scope.Thread)
+public class EntityStoreBenchmark {
+
+    private static final byte RING = 0, SCATTERED_RING = 1;
+
+    @Param({"1000", "10000", "50000"})
+    public int entityCount;
+
+    private EntityStore store;
+    private final IntArray nearby = new IntArray();
+
+    @Setup
+    public void setup() {
+        store = new EntityStore(entityCount);
+        store.setSystem(SCATTERED_RING, new VelocitySystem(-787.5F));
+
+        //Mostly still rings, with a quarter of them flying around
+        final Random random = new Random(0);
+        for (int i = 0; i < entityCount; i++) {
+            final byte type = (i % 4 == 0) ? SCATTERED_RING : RING;
+            final int entity = store.add(type, random.nextFloat() * 10000, random.nextFloat() * 2000, 8, 8);
+            if (type == SCATTERED_RING) store.setVelocity(entity, random.nextFloat() * 480 - 240, random.nextFloat() * 480);
+        }
+    }
+
+    @Benchmark
+    public EntityStore update() {
+        store.update(1F / 60);
+        return store;
+    }
+
+    /**
+     * Finds the entities overlapping a box the size of the player - should stay about the same as entityCount grows.
+     */
+    @Benchmark
+    public int queryAroundPlayer() {
+        nearby.clear();
+        store.queryOverlaps(5000 - 9, 5000 + 9, 1000 - 19, 1000 + 19, nearby);
+        return nearby.size;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx.benchmarks;
+
+import com.sonicgdx.HeadlessSimulation;
+import com.sonicgdx.PlayerInput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures one full physics step of the player, including its sensors and collision.
+ */
+@State(Scope.Thread)
+public class PlayerStepBenchmark {
+
+    /**
+     * STANDING - landed on the first slope with no input.
+     * <br>
+     * RUNNING - holding right, so the player runs over flat ground, slopes and gaps (and respawns when it falls off
+     * the level) which covers the ground, air and wall collision paths.
+     */
+    @Param({"STANDING", "RUNNING"})
+    public String movement;
+
+    private HeadlessSimulation simulation;
+
+    @Setup
+    public void setup() {
+        simulation = new HeadlessSimulation();
+        //Lets the player fall from the starting position and land first
+        simulation.step(120);
+        if (movement.equals("RUNNING")) simulation.getInput().setHeldActions(PlayerInput.RIGHT);
+    }
+
+    @Benchmark
+    public float step() {
+        simulation.step();
+        return simulation.getPlayer().getXPosition();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx.benchmarks;
+
+import com.sonicgdx.SensorBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class SensorBenchmark {
+
+    @Param({"FLAT", "SLOPE", "EMPTY", "FULL"})
+    public Terrain terrain;
+
+    private SensorBatch floorSensor, wallSensor;
+    // The player's two floor sensors, 18 pixels apart at the same height
+    private SensorBatch floorSensors;
+
+    @Setup
+    public void setup() {
+        floorSensor = createBatch(SensorBatch.FLOOR, 0);
+        wallSensor = createBatch(SensorBatch.WALL, 0);
+        floorSensors = createBatch(SensorBatch.FLOOR, 18);
+    }
+
+    /**
+     * @param spacing the distance to a second sensor to the right of the first, or 0 for only one sensor
+     */
+    private SensorBatch createBatch(final byte direction, final int spacing) {
+        final SensorBatch batch = new SensorBatch(2);
+        final int first = batch.add(direction);
+        batch.setPosition(first, terrain.x, terrain.y);
+        batch.setActive(first, true);
+        if (spacing != 0) {
+            final int second = batch.add(direction);
+            batch.setPosition(second, terrain.x + spacing, terrain.y);
+            batch.setActive(second, true);
+        }
+        return batch;
+    }
+
+    @Benchmark
+    public float floorProcess() {
+        floorSensor.process();
+        return floorSensor.getDistance(0);
+    }
+
+    @Benchmark
+    public float floorProcessPair() {
+        floorSensors.process();
+        return floorSensors.getDistance(0) + floorSensors.getDistance(1);
+    }
+
+    @Benchmark
+    public float wallProcess() {
+        wallSensor.process();
+        return wallSensor.getDistance(0);
+    }
+}
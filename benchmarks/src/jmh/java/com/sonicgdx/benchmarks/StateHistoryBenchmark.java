@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx.benchmarks;
+
+import com.sonicgdx.EntityStore;
+import com.sonicgdx.HeadlessSimulation;
+import com.sonicgdx.StateHistory;
+import com.sonicgdx.VelocitySystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Measures taking and restoring a snapshot of the simulation, which rollback has to do several times per frame.
+ */
+@State(Scope.Thread)
+public class StateHistoryBenchmark {
+
+    private static final byte SCATTERED_RING = 0;
+
+    @Param({"0", "1000", "10000"})
+    public int entityCount;
+
+    private HeadlessSimulation simulation;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        simulation = new HeadlessSimulation();
+        final EntityStore entities = simulation.getEntities();
+        entities.setSystem(SCATTERED_RING, new VelocitySystem(-787.5F));
+        final Random random = new Random(0);
+        for (int i = 0; i < entityCount; i++) {
+            final int entity = entities.add(SCATTERED_RING, random.nextFloat() * 10000, random.nextFloat() * 2000, 8, 8);
+            entities.setVelocity(entity, random.nextFloat() * 480 - 240, random.nextFloat() * 480);
+        }
+        simulation.step(120);
+        buffer = ByteBuffer.allocate(StateHistory.getSnapshotSize(entities));
+    }
+
+    @Benchmark
+    public ByteBuffer write() {
+        buffer.clear();
+        simulation.writeState(buffer);
+        return buffer;
+    }
+
+    /**
+     * Writes a snapshot and reads it straight back.
+     */
+    @Benchmark
+    public HeadlessSimulation writeAndRead() {
+        buffer.clear();
+        simulation.writeState(buffer);
+        buffer.flip();
+        simulation.readState(buffer);
+        return simulation;
+    }
+}
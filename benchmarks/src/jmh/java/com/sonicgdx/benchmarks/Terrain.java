@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx.benchmarks;
+
+import static com.sonicgdx.TileMap.CHUNK_LENGTH;
+import static com.sonicgdx.TileMap.TILE_LENGTH;
+
+/**
+ * World positions in the test level with different kinds of terrain, so that lookups and sensors can be compared
+ * between the cheap and expensive cases.
+ */
+public enum Terrain {
+    /**
+     * Just above a chunk of full tiles, where a floor sensor has to look at the tile below.
+     */
+    FLAT(150, 100),
+    /**
+     * Inside a 45 degree slope tile.
+     */
+    SLOPE(40, 40),
+    /**
+     * In the air, far from any solid tile.
+     */
+    EMPTY(450, 300),
+    /**
+     * Inside a chunk of full tiles, where a floor sensor has to look at the tile above.
+     */
+    FULL(150, 50);
+
+    public final int x, y;
+
+    Terrain(final int x, final int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public int getChunkX() {
+        return x / CHUNK_LENGTH;
+    }
+
+    public int getChunkY() {
+        return y / CHUNK_LENGTH;
+    }
+
+    public int getTileX() {
+        return (x % CHUNK_LENGTH) / TILE_LENGTH;
+    }
+
+    public int getTileY() {
+        return (y % CHUNK_LENGTH) / TILE_LENGTH;
+    }
+}
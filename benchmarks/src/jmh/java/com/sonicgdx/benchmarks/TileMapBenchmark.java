@@ -0,0 +1,59 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx.benchmarks;
+
+import com.sonicgdx.Chunk;
+import com.sonicgdx.Tile;
+import com.sonicgdx.TileMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class TileMapBenchmark {
+
+    @Param({"FLAT", "SLOPE", "EMPTY", "FULL"})
+    public Terrain terrain;
+
+    // Copied from terrain so that the benchmarks only measure the lookups
+    private int chunkX, chunkY, tileX, tileY;
+
+    @Setup
+    public void setup() {
+        chunkX = terrain.getChunkX();
+        chunkY = terrain.getChunkY();
+        tileX = terrain.getTileX();
+        tileY = terrain.getTileY();
+    }
+
+    @Benchmark
+    public Tile getTile() {
+        return TileMap.getTile(chunkX, chunkY, tileX, tileY);
+    }
+
+    @Benchmark
+    public short getTileId() {
+        return TileMap.getTileId(chunkX, chunkY, tileX, tileY);
+    }
+
+    @Benchmark
+    public Chunk getChunk() {
+        return TileMap.getChunk(chunkX, chunkY);
+    }
+}
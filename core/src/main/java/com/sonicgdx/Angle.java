@@ -0,0 +1,154 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+/**
+ * Angles in the 256-step format of the original games, where a full turn is 256 steps and each step is 1.40625
+ * degrees. They go anticlockwise like degrees in libGDX, so 0 is flat ground, 64 is a wall facing left and 128 is a
+ * ceiling.
+ * <p>
+ * Sines and cosines come from tables worked out once, rounded to multiples of 1/256 like the original's tables. The
+ * physics therefore never calls float trigonometry, and it gives bit for bit the same results on every platform -
+ * even if Math.sin() doesn't, it is never far enough off to round differently.
+ * <p>
+ * Like in the original, step 255 is reserved for {@link #FLAGGED} tiles.
+ */
+public final class Angle {
+
+    public static final int STEPS = 256;
+    /**
+     * A quarter turn, i.e. 90 degrees.
+     */
+    public static final int QUARTER = STEPS / 4;
+    /**
+     * The tile angle which tells the player to snap their own angle to the nearest quarter turn. It is kept when
+     * flipping.
+     */
+    public static final int FLAGGED = 0xFF;
+
+    /**
+     * How steep the ground is when landing on it, which decides how much of the air velocity is kept.
+     * See {@link #getLandingRange(int)}.
+     */
+    public static final int LANDING_FLAT = 0, LANDING_SLOPE = 1, LANDING_STEEP = 2, LANDING_NONE = 3;
+
+    private static final float DEGREES_PER_STEP = 360F / STEPS;
+
+    private static final float[] SINES = new float[STEPS], COSINES = new float[STEPS];
+    // The same values in 256ths, for fixed-point physics
+    private static final int[] FIXED_SINES = new int[STEPS], FIXED_COSINES = new int[STEPS];
+    private static final byte[] LANDING_RANGES = new byte[STEPS];
+
+    static {
+        for (int angle = 0; angle < STEPS; angle++) {
+            final double radians = angle * (Math.PI * 2 / STEPS);
+            FIXED_SINES[angle] = (int) Math.round(Math.sin(radians) * Fixed.ONE);
+            FIXED_COSINES[angle] = (int) Math.round(Math.cos(radians) * Fixed.ONE);
+            SINES[angle] = Fixed.toFloat(FIXED_SINES[angle]);
+            COSINES[angle] = Fixed.toFloat(FIXED_COSINES[angle]);
+
+            //Slopes facing either way are treated the same
+            final int steepness = angle <= STEPS / 2 ? angle : STEPS - angle;
+            //Up to 22.5, 45 and 90 degrees - the same as the 23, 45 and 90 degree limits the player used before
+            if (steepness <= 16) LANDING_RANGES[angle] = LANDING_FLAT;
+            else if (steepness <= 32) LANDING_RANGES[angle] = LANDING_SLOPE;
+            else if (steepness <= QUARTER) LANDING_RANGES[angle] = LANDING_STEEP;
+            //Ceilings aren't landed on yet
+            else LANDING_RANGES[angle] = LANDING_NONE;
+        }
+    }
+
+    private Angle() {
+    }
+
+    /**
+     * @param degrees any angle in degrees, where 360 means {@link #FLAGGED}
+     * @return the nearest step. Angles which round to step 255 are treated as flat since that step means flagged.
+     */
+    public static int fromDegrees(final float degrees) {
+        if (degrees == 360) return FLAGGED;
+        return normalise(Math.round(degrees / DEGREES_PER_STEP));
+    }
+
+    /**
+     * @return the angle in degrees, e.g. for rotating sprites. {@link #FLAGGED} is 360.
+     */
+    public static float toDegrees(final int angle) {
+        if (angle == FLAGGED) return 360;
+        return angle * DEGREES_PER_STEP;
+    }
+
+    /**
+     * Wraps any number of steps into a tile angle between 0 and 254.
+     */
+    public static int normalise(final int angle) {
+        final int wrapped = angle & (STEPS - 1);
+        return wrapped == FLAGGED ? 0 : wrapped;
+    }
+
+    public static float sin(final int angle) {
+        return SINES[angle & (STEPS - 1)];
+    }
+
+    public static float cos(final int angle) {
+        return COSINES[angle & (STEPS - 1)];
+    }
+
+    /**
+     * @return the same as {@link #sin(int)} as a {@link Fixed} value
+     */
+    public static int fixedSin(final int angle) {
+        return FIXED_SINES[angle & (STEPS - 1)];
+    }
+
+    /**
+     * @return the same as {@link #cos(int)} as a {@link Fixed} value
+     */
+    public static int fixedCos(final int angle) {
+        return FIXED_COSINES[angle & (STEPS - 1)];
+    }
+
+    /**
+     * @return the nearest multiple of {@link #QUARTER}, wrapped to a full turn - half way rounds up like in the original
+     */
+    public static int snapToQuarter(final int angle) {
+        return (angle + (QUARTER / 2)) & (STEPS - QUARTER);
+    }
+
+    /**
+     * @return one of LANDING_FLAT, LANDING_SLOPE, LANDING_STEEP or LANDING_NONE
+     */
+    public static int getLandingRange(final int angle) {
+        return LANDING_RANGES[angle & (STEPS - 1)];
+    }
+
+    /**
+     * @return the angle of the same surface mirrored left to right
+     */
+    static int flipHorizontally(final int angle) {
+        if (angle == FLAGGED) return angle;
+        return normalise(-angle);
+    }
+
+    /**
+     * @return the angle of the same surface mirrored upside down
+     */
+    static int flipVertically(final int angle) {
+        if (angle == FLAGGED) return angle;
+        return normalise((STEPS / 2) - angle);
+    }
+}
@@ -16,43 +16,83 @@
 
 package com.sonicgdx;
 
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
 import java.util.Optional;
 
 import static com.sonicgdx.TileMap.TILES_PER_CHUNK;
 
 public class Chunk {
-    //FIXME Optional is not serializable
-    private final Optional<Texture> texture;
-    private final Tile[][] tileArray;
+    /**
+     * The name of this chunk's region in the chunk atlas, or null if it doesn't have a texture.
+     */
+    private final String textureName;
+    // Only present while the chunk atlas page with this chunk's region is loaded - see ChunkTextureResidency.
+    // Kept as an Optional rather than wrapped in getTexture(), which is called for every visible chunk every frame.
+    private Optional<TextureRegion> texture = Optional.empty();
+    /**
+     * IDs from the {@link TileRegistry}, indexed by (tileX * TILES_PER_CHUNK) + tileY
+     */
+    private final short[] tileIds;
     private final boolean empty;
 
-    public Chunk(final Texture texture, final Tile[][] tileArray) {
-        if (tileArray.length == TILES_PER_CHUNK) this.tileArray = tileArray;
-        else throw new IllegalArgumentException("heightArray Length is " +  tileArray.length + " instead of " + TILES_PER_CHUNK);
+    /**
+     * @param textureName the name of the chunk's region in the chunk atlas, which is the name of its file in
+     *                    chunk-art/AIZ2 without the extension
+     */
+    public Chunk(final String textureName, final short[][] tileIdGrid) {
+        this.tileIds = flattenTileIdGrid(tileIdGrid);
         this.empty = false;
-        this.texture = Optional.of(texture);
+        this.textureName = textureName;
     }
 
-    public Chunk(final Tile[][] tileArray) {
-        if (tileArray.length == TILES_PER_CHUNK) this.tileArray = tileArray;
-        else throw new IllegalArgumentException("heightArray Length is " +  tileArray.length + " instead of " + TILES_PER_CHUNK);
+    public Chunk(final short[][] tileIdGrid) {
+        this.tileIds = flattenTileIdGrid(tileIdGrid);
         this.empty = true;
-        this.texture = Optional.empty();
+        this.textureName = null;
     }
 
-    public Optional<Texture> getTexture() {
+    /**
+     * @param tileIdGrid indexed by [tileX][tileY]. Columns which are shorter than TILES_PER_CHUNK are filled with empty tiles.
+     */
+    private static short[] flattenTileIdGrid(final short[][] tileIdGrid) {
+        if (tileIdGrid.length != TILES_PER_CHUNK) throw new IllegalArgumentException("tileIdGrid Length is " +  tileIdGrid.length + " instead of " + TILES_PER_CHUNK);
+
+        final short[] tileIds = new short[TILES_PER_CHUNK * TILES_PER_CHUNK];
+        for (int tileX = 0; tileX < TILES_PER_CHUNK; tileX++) {
+            if (tileIdGrid[tileX].length > TILES_PER_CHUNK) throw new IllegalArgumentException("tileIdGrid[" + tileX + "] Length is " +  tileIdGrid[tileX].length + " which is more than " + TILES_PER_CHUNK);
+            //Anything not copied stays as 0, which is the empty tile.
+            System.arraycopy(tileIdGrid[tileX], 0, tileIds, tileX * TILES_PER_CHUNK, tileIdGrid[tileX].length);
+        }
+        return tileIds;
+    }
+
+    /**
+     * @return the chunk's region in the chunk atlas, or nothing if it doesn't have one or its page isn't loaded right
+     * now. {@link #getTextureName()} tells these apart.
+     */
+    public Optional<TextureRegion> getTexture() {
         return texture;
     }
 
     /**
-     * This returns the tileArray, but doesn't perform any validations on it. Discouraged.
-     * @see TileMap#getTile(int chunkX, int chunkY, int tileX, int tileY) instead.
-     * @return the tileArray
+     * @return the name of the chunk's region in the chunk atlas, or null if it doesn't have a texture.
+     */
+    public String getTextureName() {
+        return textureName;
+    }
+
+    void setTexture(final TextureRegion texture) {
+        this.texture = Optional.ofNullable(texture);
+    }
+
+    /**
+     * This returns the tile ID, but doesn't perform any validations on the co-ordinates. Discouraged.
+     * @see TileMap#getTileId(int chunkX, int chunkY, int tileX, int tileY) instead.
+     * @return the ID of the tile, to be used with the {@link TileRegistry}
      */
-    public Tile[][] getTileArray() {
-        return tileArray;
+    public short getTileId(final int tileX, final int tileY) {
+        return tileIds[(tileX * TILES_PER_CHUNK) + tileY];
     }
     public boolean isEmpty() {
         return empty;
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.sonicgdx.TileMap.CHUNK_LENGTH;
+
+/**
+ * Keeps the textures of every chunk in the map compiled into static geometry with a {@link SpriteCache}, so that they
+ * don't have to be submitted to the SpriteBatch again every frame.
+ * <p>
+ * The map is split into square sections of chunks which are cached separately, so that only the sections the camera
+ * can see are drawn. Since the chunk textures are all regions of the chunk atlas, a section is usually a single draw
+ * call. Square groups of sections share a SpriteCache, which is only created once one of them has something to draw.
+ * When {@link ChunkTextureResidency} reports that chunks have been given or lost their textures, only the sections
+ * containing them are cached again, and only once they are drawn. Every section is cached again when the
+ * {@link TileMap#getRevision() TileMap's revision} changes.
+ */
+public class ChunkTextureCache implements Disposable {
+
+    /**
+     * The width and height of a section in chunks.
+     */
+    private static final int SECTION_LENGTH = 8;
+    /**
+     * Every chunk is one sprite, so this is the most a section ever has to hold.
+     */
+    private static final int SPRITES_PER_SECTION = SECTION_LENGTH * SECTION_LENGTH;
+    /**
+     * The width and height of a group in sections. A SpriteCache which uses indices can hold 8191 sprites, so this is
+     * as many full sections as fit in one.
+     */
+    private static final int GROUP_LENGTH = 11;
+
+    private int sectionsWide, sectionsHigh, groupsHigh;
+    // For each group (indexed by groupX * groupsHigh + groupY), the SpriteCache its sections are in. Null until used.
+    private SpriteCache[] groupCaches = new SpriteCache[0];
+    // For each section (indexed by sectionX * sectionsHigh + sectionY), its cache ID in its group's SpriteCache, or -1
+    // if it has never been cached, and the number of sprites in it that are drawn
+    private int[] sectionCacheIds, sectionSpriteCounts;
+    // Sections whose chunks' textures have changed since they were last cached
+    private boolean[] dirtySections;
+    private int builtRevision;
+    // Used to pad sections out to their full size - see cacheSection()
+    private TextureRegion lastAddedRegion;
+
+    /**
+     * Caches the TileMap's current level, and caches sections of it again whenever the level changes or chunk textures
+     * are loaded or unloaded.
+     * @param residency decides which chunks have their textures loaded. Chunks without one aren't drawn.
+     */
+    public ChunkTextureCache(final ChunkTextureResidency residency) {
+        residency.setTextureListener(this::markChunkDirty);
+        resize();
+    }
+
+    /**
+     * Fits the sections to the current map, keeping the SpriteCaches if its size hasn't changed.
+     */
+    private void resize() {
+        builtRevision = TileMap.getRevision();
+        final int newSectionsWide = (TileMap.getWidthInChunks() + SECTION_LENGTH - 1) / SECTION_LENGTH;
+        final int newSectionsHigh = (TileMap.getHeightInChunks() + SECTION_LENGTH - 1) / SECTION_LENGTH;
+
+        if (newSectionsWide != sectionsWide || newSectionsHigh != sectionsHigh || dirtySections == null) {
+            disposeGroupCaches();
+            sectionsWide = newSectionsWide;
+            sectionsHigh = newSectionsHigh;
+            groupsHigh = (sectionsHigh + GROUP_LENGTH - 1) / GROUP_LENGTH;
+            groupCaches = new SpriteCache[((sectionsWide + GROUP_LENGTH - 1) / GROUP_LENGTH) * groupsHigh];
+            sectionCacheIds = new int[sectionsWide * sectionsHigh];
+            Arrays.fill(sectionCacheIds, -1);
+            sectionSpriteCounts = new int[sectionsWide * sectionsHigh];
+            dirtySections = new boolean[sectionsWide * sectionsHigh];
+        }
+        //Any chunk could have been replaced
+        Arrays.fill(dirtySections, true);
+    }
+
+    private void markChunkDirty(final int chunkX, final int chunkY) {
+        final int sectionX = chunkX / SECTION_LENGTH, sectionY = chunkY / SECTION_LENGTH;
+        //The residency can report chunks of a map which this hasn't been resized for yet, which resizing covers anyway
+        if (sectionX >= sectionsWide || sectionY >= sectionsHigh) return;
+        dirtySections[(sectionX * sectionsHigh) + sectionY] = true;
+    }
+
+    private SpriteCache getGroupCache(final int sectionX, final int sectionY) {
+        final int group = ((sectionX / GROUP_LENGTH) * groupsHigh) + (sectionY / GROUP_LENGTH);
+        SpriteCache spriteCache = groupCaches[group];
+        if (spriteCache == null) {
+            spriteCache = new SpriteCache(GROUP_LENGTH * GROUP_LENGTH * SPRITES_PER_SECTION, true);
+            groupCaches[group] = spriteCache;
+        }
+        return spriteCache;
+    }
+
+    /**
+     * Replaces whatever was cached for the section with the chunks in it that have textures right now. The section
+     * keeps its cache ID, so nothing else in its group's SpriteCache has to be cached again.
+     */
+    private void cacheSection(final int sectionX, final int sectionY) {
+        final int section = (sectionX * sectionsHigh) + sectionY;
+        dirtySections[section] = false;
+        FrameProfiler.count(FrameProfiler.Counter.CHUNK_SECTIONS_CACHED);
+
+        sectionSpriteCounts[section] = countChunksWithTextures(sectionX, sectionY);
+        //Left as it is, since it won't be drawn - it is redefined once it has something to draw again
+        if (sectionSpriteCounts[section] == 0) return;
+
+        final SpriteCache spriteCache = getGroupCache(sectionX, sectionY);
+        if (sectionCacheIds[section] == -1) spriteCache.beginCache();
+        else spriteCache.beginCache(sectionCacheIds[section]);
+        forEachChunkInSection(sectionX, sectionY, spriteCache);
+        //A cache can't be redefined with more sprites than it was created with, so every section takes up the space of
+        //a full one. Only the real sprites are drawn.
+        for (int sprite = sectionSpriteCounts[section]; sprite < SPRITES_PER_SECTION; sprite++) {
+            spriteCache.add(lastAddedRegion, 0, 0, 0, 0);
+        }
+        sectionCacheIds[section] = spriteCache.endCache();
+    }
+
+    private int countChunksWithTextures(final int sectionX, final int sectionY) {
+        return forEachChunkInSection(sectionX, sectionY, null);
+    }
+
+    /**
+     * @param spriteCache the cache to add the texture of each chunk in the section to, or null to only count them
+     * @return the number of chunks in the section with a texture
+     */
+    private int forEachChunkInSection(final int sectionX, final int sectionY, final SpriteCache spriteCache) {
+        int count = 0;
+        final int lastChunkX = Math.min((sectionX + 1) * SECTION_LENGTH, TileMap.getWidthInChunks()) - 1;
+        for (int chunkX = sectionX * SECTION_LENGTH; chunkX <= lastChunkX; chunkX++) {
+            final int lastChunkY = Math.min((sectionY + 1) * SECTION_LENGTH, TileMap.getColumnHeight(chunkX)) - 1;
+            for (int chunkY = sectionY * SECTION_LENGTH; chunkY <= lastChunkY; chunkY++) {
+                final Optional<TextureRegion> texture = TileMap.getChunk(chunkX, chunkY).getTexture();
+                if (texture.isEmpty()) continue;
+                count++;
+                if (spriteCache != null) {
+                    spriteCache.add(texture.get(), chunkX * CHUNK_LENGTH, chunkY * CHUNK_LENGTH, CHUNK_LENGTH, CHUNK_LENGTH);
+                    lastAddedRegion = texture.get();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Draws every cached section that overlaps the given range of chunks. Must not be called between the begin() and
+     * end() of a SpriteBatch.
+     * @param projection the camera's combined matrix
+     */
+    public void draw(final Matrix4 projection, final int firstChunkX, final int lastChunkX, final int firstChunkY, final int lastChunkY) {
+        if (builtRevision != TileMap.getRevision()) resize();
+
+        final int firstSectionX = Math.max(0, firstChunkX / SECTION_LENGTH);
+        final int lastSectionX = Math.min(sectionsWide - 1, lastChunkX / SECTION_LENGTH);
+        final int firstSectionY = Math.max(0, firstChunkY / SECTION_LENGTH);
+        final int lastSectionY = Math.min(sectionsHigh - 1, lastChunkY / SECTION_LENGTH);
+
+        //SpriteCache doesn't manage blending itself, and chunk textures are transparent around the terrain
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+
+        //A SpriteCache can't have caches redefined while it is drawing, so the sections are all cached first
+        for (int sectionX = firstSectionX; sectionX <= lastSectionX; sectionX++) {
+            for (int sectionY = firstSectionY; sectionY <= lastSectionY; sectionY++) {
+                if (dirtySections[(sectionX * sectionsHigh) + sectionY]) cacheSection(sectionX, sectionY);
+            }
+        }
+
+        SpriteCache drawingCache = null;
+        for (int sectionX = firstSectionX; sectionX <= lastSectionX; sectionX++) {
+            for (int sectionY = firstSectionY; sectionY <= lastSectionY; sectionY++) {
+                final int section = (sectionX * sectionsHigh) + sectionY;
+                if (sectionSpriteCounts[section] == 0) continue;
+
+                //Sections in the same group are drawn without ending and beginning the SpriteCache in between
+                final SpriteCache spriteCache = getGroupCache(sectionX, sectionY);
+                if (spriteCache != drawingCache) {
+                    if (drawingCache != null) drawingCache.end();
+                    spriteCache.setProjectionMatrix(projection);
+                    spriteCache.begin();
+                    drawingCache = spriteCache;
+                }
+                spriteCache.draw(sectionCacheIds[section], 0, sectionSpriteCounts[section]);
+                FrameProfiler.count(FrameProfiler.Counter.CHUNK_SECTIONS_DRAWN);
+            }
+        }
+        if (drawingCache != null) drawingCache.end();
+
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+    }
+
+    private void disposeGroupCaches() {
+        //Each SpriteCache disposes the shader it created as well
+        for (final SpriteCache spriteCache : groupCaches) {
+            if (spriteCache != null) spriteCache.dispose();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        disposeGroupCaches();
+    }
+}
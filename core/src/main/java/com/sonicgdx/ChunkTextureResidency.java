@@ -0,0 +1,277 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.TextureLoader;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Decides which pages of the chunk atlas are loaded, so that only the chunk textures near the camera use GPU memory.
+ * <p>
+ * A page is requested from the {@link AssetManager} when a chunk that uses it comes within the prefetch margin of the
+ * camera, and is loaded in the background. Only {@link #setUploadBudgetMillis(int) a few milliseconds} of every frame
+ * are spent finishing loads, so uploading a page never causes a long frame. Once a page is loaded every chunk in the
+ * map using it is given its region, and until then {@link Chunk#getTexture()} is empty for those chunks. The positions
+ * using each page are indexed once per {@link TileMap#getRevision() TileMap revision}, so loading or unloading a page
+ * only touches its own chunks, and each of their positions is reported to the {@link TextureListener}.
+ * <p>
+ * When the loaded and requested pages would take more than the memory limit, the pages which have gone the longest
+ * without being near the camera are unloaded. Pages near the camera are never unloaded, so the limit can be exceeded if
+ * the camera can see more than fits.
+ */
+public class ChunkTextureResidency implements Disposable {
+
+    // Pages are always unpacked to RGBA8888 by the texture packer's default settings
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final AssetManager assetManager;
+    private final long maxResidentBytes;
+    private final Array<Page> pages = new Array<>();
+    // The page and the packing information of each chunk texture, by its name in the atlas
+    private final ObjectMap<String, Page> pagesByRegionName = new ObjectMap<>();
+    private final ObjectMap<String, TextureAtlasData.Region> regionsByName = new ObjectMap<>();
+
+    private int prefetchMargin = 2;
+    private int uploadBudgetMillis = 4;
+
+    private long residentBytes;
+    private int frame;
+    // The TileMap revision the pages' chunk positions were indexed for, and the map height they were packed with
+    private int indexedMapRevision;
+    private int indexedHeightInChunks;
+    private TextureListener textureListener;
+
+    private static final class Page {
+        final String fileName;
+        final TextureLoader.TextureParameter parameter = new TextureLoader.TextureParameter();
+        final long bytes;
+        // The regions of this page, created when it finishes loading
+        final ObjectMap<String, TextureAtlas.AtlasRegion> regions = new ObjectMap<>();
+
+        boolean requested;
+        Texture texture;
+        int lastUsedFrame = -1;
+        // Every position in the map with a chunk that uses this page, as (chunkX * indexedHeightInChunks) + chunkY
+        final IntArray chunkPositions = new IntArray();
+
+        Page(final TextureAtlasData.Page data) {
+            fileName = data.textureFile.path();
+            parameter.format = data.format;
+            parameter.genMipMaps = data.useMipMaps;
+            parameter.minFilter = data.minFilter;
+            parameter.magFilter = data.magFilter;
+            parameter.wrapU = data.uWrap;
+            parameter.wrapV = data.vWrap;
+            bytes = (long) data.width * (long) data.height * BYTES_PER_PIXEL;
+        }
+    }
+
+    /**
+     * Told about every position in the map whose chunk has been given its texture or had it taken away.
+     */
+    public interface TextureListener {
+        void textureChanged(int chunkX, int chunkY);
+    }
+
+    /**
+     * Reads the chunk atlas's layout, but doesn't load any of its pages until they are needed.
+     * @param assetManager loads the pages. Should use an internal file resolver, like the default one.
+     * @param atlasFile the atlas packed from chunk-art/AIZ2 by the packChunkTextures Gradle task
+     * @param maxResidentBytes the most memory the loaded pages should take, estimated from their sizes in the atlas
+     */
+    public ChunkTextureResidency(final AssetManager assetManager, final FileHandle atlasFile, final long maxResidentBytes) {
+        if (maxResidentBytes <= 0) throw new IllegalArgumentException("maxResidentBytes is " + maxResidentBytes + " but must be positive");
+        this.assetManager = assetManager;
+        this.maxResidentBytes = maxResidentBytes;
+
+        final TextureAtlasData atlasData = new TextureAtlasData(atlasFile, atlasFile.parent(), false);
+        final ObjectMap<TextureAtlasData.Page, Page> pagesByData = new ObjectMap<>();
+        for (final TextureAtlasData.Page pageData : atlasData.getPages()) {
+            final Page page = new Page(pageData);
+            pages.add(page);
+            pagesByData.put(pageData, page);
+        }
+        for (final TextureAtlasData.Region region : atlasData.getRegions()) {
+            pagesByRegionName.put(region.name, pagesByData.get(region.page));
+            regionsByName.put(region.name, region);
+        }
+        indexChunkPositions();
+    }
+
+    /**
+     * Finds every position in the map which uses each page, so that pages don't have to search the whole map when
+     * they are loaded or unloaded.
+     */
+    private void indexChunkPositions() {
+        indexedMapRevision = TileMap.getRevision();
+        indexedHeightInChunks = TileMap.getHeightInChunks();
+        for (final Page page : pages) page.chunkPositions.clear();
+
+        for (int chunkX = 0; chunkX < TileMap.getWidthInChunks(); chunkX++) {
+            for (int chunkY = 0; chunkY < TileMap.getColumnHeight(chunkX); chunkY++) {
+                //Only the names are read, so the level doesn't have to read every chunk's tiles
+                final String textureName = TileMap.getTextureName(chunkX, chunkY);
+                if (textureName == null) continue;
+                getPage(textureName).chunkPositions.add((chunkX * indexedHeightInChunks) + chunkY);
+            }
+        }
+    }
+
+    private Page getPage(final String textureName) {
+        final Page page = pagesByRegionName.get(textureName);
+        if (page == null) throw new IllegalArgumentException("The chunk atlas has no region called " + textureName);
+        return page;
+    }
+
+    /**
+     * Should be called once per frame. Requests the pages used by chunks in or near the given range, spends the upload
+     * budget finishing loads, and unloads old pages if they take too much memory.
+     */
+    public void update(final int firstChunkX, final int lastChunkX, final int firstChunkY, final int lastChunkY) {
+        frame++;
+
+        //The new chunks have never been given textures, so the loaded pages need to give them theirs
+        if (indexedMapRevision != TileMap.getRevision()) {
+            indexChunkPositions();
+            for (final Page page : pages) {
+                if (page.texture != null) setTextures(page, true);
+            }
+        }
+
+        final int lastX = Math.min(TileMap.getWidthInChunks() - 1, lastChunkX + prefetchMargin);
+        for (int chunkX = Math.max(0, firstChunkX - prefetchMargin); chunkX <= lastX; chunkX++) {
+            final int lastY = Math.min(TileMap.getColumnHeight(chunkX) - 1, lastChunkY + prefetchMargin);
+            for (int chunkY = Math.max(0, firstChunkY - prefetchMargin); chunkY <= lastY; chunkY++) {
+                final String textureName = TileMap.getTextureName(chunkX, chunkY);
+                if (textureName == null) continue;
+
+                final Page page = getPage(textureName);
+                page.lastUsedFrame = frame;
+                if (!page.requested) {
+                    assetManager.load(page.fileName, Texture.class, page.parameter);
+                    page.requested = true;
+                    residentBytes += page.bytes;
+                }
+            }
+        }
+
+        evictLeastRecentlyUsed();
+
+        assetManager.update(uploadBudgetMillis);
+        for (final Page page : pages) {
+            if (page.requested && page.texture == null && assetManager.isLoaded(page.fileName)) {
+                page.texture = assetManager.get(page.fileName, Texture.class);
+                setTextures(page, true);
+            }
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        while (residentBytes > maxResidentBytes) {
+            Page oldest = null;
+            for (final Page page : pages) {
+                if (page.requested && page.lastUsedFrame != frame && (oldest == null || page.lastUsedFrame < oldest.lastUsedFrame)) {
+                    oldest = page;
+                }
+            }
+            if (oldest == null) return;
+            unload(oldest);
+        }
+    }
+
+    private void unload(final Page page) {
+        if (page.texture != null) setTextures(page, false);
+        page.texture = null;
+        //Also cancels the load if it hasn't finished yet
+        assetManager.unload(page.fileName);
+        page.requested = false;
+        residentBytes -= page.bytes;
+    }
+
+    /**
+     * Gives every chunk in the map which uses the page its region, or takes them away. Chunks which haven't been read
+     * from the level yet are only read if they use this page.
+     */
+    private void setTextures(final Page page, final boolean resident) {
+        if (resident && page.regions.size == 0) {
+            for (final TextureAtlasData.Region region : regionsByName.values()) {
+                if (pagesByRegionName.get(region.name) != page) continue;
+                final TextureAtlas.AtlasRegion atlasRegion = new TextureAtlas.AtlasRegion(page.texture, region.left, region.top, region.width, region.height);
+                atlasRegion.name = region.name;
+                atlasRegion.index = region.index;
+                atlasRegion.originalWidth = region.originalWidth;
+                atlasRegion.originalHeight = region.originalHeight;
+                atlasRegion.packedWidth = region.width;
+                atlasRegion.packedHeight = region.height;
+                page.regions.put(region.name, atlasRegion);
+            }
+        }
+
+        for (int i = 0; i < page.chunkPositions.size; i++) {
+            final int chunkX = page.chunkPositions.get(i) / indexedHeightInChunks;
+            final int chunkY = page.chunkPositions.get(i) % indexedHeightInChunks;
+            //Chunks used in several places are the same object, so this may set the same one more than once
+            final Chunk chunk = TileMap.getChunk(chunkX, chunkY);
+            chunk.setTexture(resident ? page.regions.get(chunk.getTextureName()) : null);
+            if (textureListener != null) textureListener.textureChanged(chunkX, chunkY);
+        }
+        if (!resident) page.regions.clear();
+    }
+
+    public void setTextureListener(final TextureListener textureListener) {
+        this.textureListener = textureListener;
+    }
+
+    /**
+     * @return the estimated memory used by the pages which are loaded or being loaded, in bytes
+     */
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * @param prefetchMargin how many chunks outside the range given to update() have their pages loaded in advance
+     */
+    public void setPrefetchMargin(final int prefetchMargin) {
+        if (prefetchMargin < 0) throw new IllegalArgumentException("prefetchMargin is " + prefetchMargin + " but cannot be negative");
+        this.prefetchMargin = prefetchMargin;
+    }
+
+    /**
+     * @param uploadBudgetMillis the most time each update() spends loading pages. Loads which take longer are spread
+     *                           across several frames.
+     */
+    public void setUploadBudgetMillis(final int uploadBudgetMillis) {
+        if (uploadBudgetMillis <= 0) throw new IllegalArgumentException("uploadBudgetMillis is " + uploadBudgetMillis + " but must be positive");
+        this.uploadBudgetMillis = uploadBudgetMillis;
+    }
+
+    @Override
+    public void dispose() {
+        for (final Page page : pages) {
+            if (page.requested) unload(page);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.utils.ObjectMap;
+
+import static com.sonicgdx.TileMap.CHUNK_LENGTH;
+import static com.sonicgdx.TileMap.TILES_PER_CHUNK;
+import static com.sonicgdx.TileMap.TILE_LENGTH;
+
+/**
+ * A flattened copy of the collision data of every Tile in the {@link TileMap}, baked once for each distinct chunk the
+ * first time a sensor looks into it. Chunks which are used several times in the level share the same baked data.
+ * <p>
+ * Sensors query this instead of going through {@link TileMap#getTile(int, int, int, int)} so that a probe is only
+ * arithmetic and a couple of array accesses rather than following references from the map to its chunks, their tile
+ * arrays and then the arrays inside each Tile. Heights and widths are never greater than {@link TileMap#TILE_LENGTH}
+ * so they are stored as bytes.
+ * <p>
+ * Floor sensors don't even need the heights - for every pixel column and row of tiles in a chunk, the surface a
+ * downwards sensor finds there (after regression or extension into the neighbouring tile) is also baked, so a floor
+ * probe is a single lookup unless it has to look into the chunk above or below. See
+ * {@link #getFloorSurfaceOffset(int, int)}.
+ * <p>
+ * Anything outside the map is treated as an empty tile.
+ * <p>
+ * Since baking writes to the map, it is only safe to query from several threads at once inside an area which has
+ * already been baked with {@link #bakeArea(float, float, float, float)}.
+ */
+public final class CollisionMap {
+
+    private final int heightInChunks;
+    private final int widthInTiles, heightInTiles;
+    private final int widthInPixels, heightInPixels;
+
+    private final TileRegistry tileRegistry;
+    // The baked data of the chunk at each position, index with (chunkX * heightInChunks) + chunkY. Null until it is used.
+    private final ChunkCollision[] chunkCollisions;
+    // Each distinct chunk is only baked once, however many times it is used in the map
+    private final ObjectMap<Chunk, ChunkCollision> collisionsByChunk = new ObjectMap<>();
+    private final ChunkCollision emptyCollision;
+
+    /**
+     * The collision data of one chunk. Everything is indexed from the bottom left of the chunk.
+     */
+    private static final class ChunkCollision {
+        /**
+         * The height array of every tile, stored one pixel column at a time.
+         * Index with {@code (x * TILES_PER_CHUNK) + tileRow}.
+         */
+        final byte[] heightColumns = new byte[CHUNK_LENGTH * TILES_PER_CHUNK];
+        /**
+         * The width array of every tile, stored one pixel row at a time.
+         * Index with {@code (y * TILES_PER_CHUNK) + tileColumn}.
+         */
+        final byte[] widthRows = new byte[CHUNK_LENGTH * TILES_PER_CHUNK];
+        /**
+         * For every pixel column, the surface found by a floor sensor in each row of tiles relative to the bottom of
+         * that row, between -TILE_LENGTH and 2 * TILE_LENGTH. The top row is left at TILE_LENGTH if it would regress
+         * into the chunk above and the bottom row at 0 if it would extend into the chunk below, since they depend on
+         * the neighbouring chunks. Index with {@code (x * TILES_PER_CHUNK) + tileRow}.
+         */
+        final byte[] floorSurfaceOffsets = new byte[CHUNK_LENGTH * TILES_PER_CHUNK];
+
+        // Per-tile data, index with (tileColumn * TILES_PER_CHUNK) + tileRow
+        // In 256-step Angle format
+        final byte[] angles = new byte[TILES_PER_CHUNK * TILES_PER_CHUNK];
+        final byte[] solidities = new byte[TILES_PER_CHUNK * TILES_PER_CHUNK];
+        final short[] tileIds = new short[TILES_PER_CHUNK * TILES_PER_CHUNK]; // filled with 0, the empty tile's ID
+
+        /**
+         * @param chunk the chunk to copy the collision data from, or null for an empty chunk
+         */
+        ChunkCollision(final Chunk chunk, final TileRegistry tileRegistry) {
+            for (int tileColumn = 0; tileColumn < TILES_PER_CHUNK; tileColumn++) {
+                for (int tileRow = 0; tileRow < TILES_PER_CHUNK; tileRow++) {
+                    //Same as TileMap.getTile() - every tile in an empty chunk is treated as empty
+                    final short tileId = (chunk == null || chunk.isEmpty()) ? TileRegistry.EMPTY_TILE_ID : chunk.getTileId(tileColumn, tileRow);
+                    storeTile(tileColumn, tileRow, tileId, tileRegistry);
+                }
+            }
+            bakeFloorSurfaces();
+        }
+
+        private void storeTile(final int tileColumn, final int tileRow, final short tileId, final TileRegistry tileRegistry) {
+            final int tileIndex = (tileColumn * TILES_PER_CHUNK) + tileRow;
+            tileIds[tileIndex] = tileId;
+            angles[tileIndex] = (byte) tileRegistry.getAngle(tileId);
+            solidities[tileIndex] = (byte) tileRegistry.getSolidity(tileId);
+
+            for (int block = 0; block < TILE_LENGTH; block++) {
+                final int x = tileColumn * TILE_LENGTH + block;
+                final int y = tileRow * TILE_LENGTH + block;
+                heightColumns[(x * TILES_PER_CHUNK) + tileRow] = (byte) tileRegistry.getHeight(tileId, block);
+                widthRows[(y * TILES_PER_CHUNK) + tileColumn] = (byte) tileRegistry.getWidth(tileId, block);
+            }
+        }
+
+        /**
+         * Works out what a {@link SensorBatch#FLOOR floor sensor} finds in each column and row from the heights.
+         */
+        private void bakeFloorSurfaces() {
+            for (int x = 0; x < CHUNK_LENGTH; x++) {
+                for (int tileRow = 0; tileRow < TILES_PER_CHUNK; tileRow++) {
+                    final int height = heightColumns[(x * TILES_PER_CHUNK) + tileRow];
+                    final int offset;
+                    // Regression - a full tile might have more surface on top of it
+                    if (height == TILE_LENGTH) offset = (tileRow == TILES_PER_CHUNK - 1) ? TILE_LENGTH : TILE_LENGTH + heightColumns[(x * TILES_PER_CHUNK) + tileRow + 1];
+                    // Extension - the surface might be in the tile below, or it is treated as being at the bottom of it
+                    else if (height == 0) offset = (tileRow == 0) ? 0 : heightColumns[(x * TILES_PER_CHUNK) + tileRow - 1] - TILE_LENGTH;
+                    else offset = height;
+                    floorSurfaceOffsets[(x * TILES_PER_CHUNK) + tileRow] = (byte) offset;
+                }
+            }
+        }
+    }
+
+    /**
+     * Nothing is baked until it is used - the chunks are looked up with {@link TileMap#getChunk(int, int)}.
+     * @param widthInChunks the number of columns of chunks in the map
+     * @param heightInChunks the number of chunks in the tallest column. Missing or empty chunks are stored as empty tiles.
+     * @param tileRegistry the registry the chunks' tile IDs belong to
+     */
+    CollisionMap(final int widthInChunks, final int heightInChunks, final TileRegistry tileRegistry) {
+        this.tileRegistry = tileRegistry;
+        this.heightInChunks = heightInChunks;
+
+        widthInTiles = widthInChunks * TILES_PER_CHUNK;
+        heightInTiles = heightInChunks * TILES_PER_CHUNK;
+        widthInPixels = widthInTiles * TILE_LENGTH;
+        heightInPixels = heightInTiles * TILE_LENGTH;
+
+        chunkCollisions = new ChunkCollision[widthInChunks * heightInChunks];
+        emptyCollision = new ChunkCollision(null, tileRegistry);
+    }
+
+    /**
+     * Replaces the collision data in the area of one chunk. The rows just above and below it don't need to be rebaked,
+     * since floor sensors look into neighbouring chunks when they are probed.
+     * @param chunk the chunk now at these indices. Null or empty chunks clear the area.
+     */
+    void updateChunk(final int chunkX, final int chunkY, final Chunk chunk) {
+        chunkCollisions[(chunkX * heightInChunks) + chunkY] = bake(chunk);
+    }
+
+    /**
+     * Bakes every chunk which overlaps the area, so that queries inside it only read from this map. Queries bake the
+     * chunks they look into otherwise, which isn't safe while several threads are querying at once.
+     * @param left the lowest world x co-ordinate in the area. Anything outside the map is ignored.
+     */
+    void bakeArea(final float left, final float right, final float bottom, final float top) {
+        final int widthInChunks = widthInTiles / TILES_PER_CHUNK;
+        final int firstChunkX = Math.max(0, (int) Math.floor(left / CHUNK_LENGTH));
+        final int lastChunkX = Math.min(widthInChunks - 1, (int) Math.floor(right / CHUNK_LENGTH));
+        final int firstChunkY = Math.max(0, (int) Math.floor(bottom / CHUNK_LENGTH));
+        final int lastChunkY = Math.min(heightInChunks - 1, (int) Math.floor(top / CHUNK_LENGTH));
+        for (int chunkX = firstChunkX; chunkX <= lastChunkX; chunkX++) {
+            for (int chunkY = firstChunkY; chunkY <= lastChunkY; chunkY++) getChunkCollision(chunkX, chunkY);
+        }
+    }
+
+    private ChunkCollision getChunkCollision(final int chunkX, final int chunkY) {
+        final int position = (chunkX * heightInChunks) + chunkY;
+        ChunkCollision collision = chunkCollisions[position];
+        if (collision == null) {
+            collision = bake(TileMap.getChunk(chunkX, chunkY));
+            chunkCollisions[position] = collision;
+        }
+        return collision;
+    }
+
+    private ChunkCollision bake(final Chunk chunk) {
+        if (chunk == null || chunk.isEmpty()) return emptyCollision;
+        ChunkCollision collision = collisionsByChunk.get(chunk);
+        if (collision == null) {
+            collision = new ChunkCollision(chunk, tileRegistry);
+            collisionsByChunk.put(chunk, collision);
+        }
+        return collision;
+    }
+
+    /**
+     * @param x the world x co-ordinate of the pixel column
+     * @param tileRow the row of tiles the floor sensor is in, equal to y / {@link TileMap#TILE_LENGTH}
+     * @return the y co-ordinate of the surface a floor sensor finds, relative to the bottom of tileRow. Greater than
+     * TILE_LENGTH if it is in the row above and 0 or less if it is in the row below - see {@link #getFloorTileRow(int, int)}.
+     */
+    public int getFloorSurfaceOffset(final int x, final int tileRow) {
+        if (x < 0 || tileRow < 0 || x >= widthInPixels || tileRow > heightInTiles) return -TILE_LENGTH;
+        //A sensor just above the map can still extend down into it
+        if (tileRow == heightInTiles) return getHeight(x, tileRow - 1) - TILE_LENGTH;
+
+        final int rowInChunk = tileRow % TILES_PER_CHUNK;
+        final int offset = getChunkCollision(x / CHUNK_LENGTH, tileRow / TILES_PER_CHUNK)
+            .floorSurfaceOffsets[((x % CHUNK_LENGTH) * TILES_PER_CHUNK) + rowInChunk];
+        //The rows at the edges of the chunk were left for the chunks above and below to finish
+        if (rowInChunk == TILES_PER_CHUNK - 1 && offset == TILE_LENGTH) return TILE_LENGTH + getHeight(x, tileRow + 1);
+        if (rowInChunk == 0 && offset == 0) return getHeight(x, tileRow - 1) - TILE_LENGTH;
+        return offset;
+    }
+    /**
+     * @param surfaceOffset a value returned by {@link #getFloorSurfaceOffset(int, int)}
+     * @return the row of the tile the surface belongs to
+     */
+    public static int getFloorTileRow(final int tileRow, final int surfaceOffset) {
+        if (surfaceOffset > TILE_LENGTH) return tileRow + 1;
+        if (surfaceOffset <= 0) return tileRow - 1;
+        return tileRow;
+    }
+
+    /**
+     * @param x the world x co-ordinate of the pixel column
+     * @param tileRow the row of tiles counted from the bottom of the map, equal to y / {@link TileMap#TILE_LENGTH}
+     * @return the height of the tile in that row at column x - 0 if outside the map.
+     */
+    public int getHeight(final int x, final int tileRow) {
+        if (x < 0 || tileRow < 0 || x >= widthInPixels || tileRow >= heightInTiles) return 0;
+        return getChunkCollision(x / CHUNK_LENGTH, tileRow / TILES_PER_CHUNK)
+            .heightColumns[((x % CHUNK_LENGTH) * TILES_PER_CHUNK) + (tileRow % TILES_PER_CHUNK)];
+    }
+
+    /**
+     * @param y the world y co-ordinate of the pixel row
+     * @param tileColumn the column of tiles counted from the left of the map, equal to x / {@link TileMap#TILE_LENGTH}
+     * @return the width of the tile in that column at row y - 0 if outside the map.
+     */
+    public int getWidth(final int y, final int tileColumn) {
+        if (y < 0 || tileColumn < 0 || y >= heightInPixels || tileColumn >= widthInTiles) return 0;
+        return getChunkCollision(tileColumn / TILES_PER_CHUNK, y / CHUNK_LENGTH)
+            .widthRows[((y % CHUNK_LENGTH) * TILES_PER_CHUNK) + (tileColumn % TILES_PER_CHUNK)];
+    }
+
+    /**
+     * @return an index for the per-tile getters in this class, or -1 if the co-ordinates are outside the map.
+     */
+    public int getTileIndex(final int tileColumn, final int tileRow) {
+        if (tileColumn < 0 || tileRow < 0 || tileColumn >= widthInTiles || tileRow >= heightInTiles) return -1;
+        return (tileColumn * heightInTiles) + tileRow;
+    }
+
+    private ChunkCollision getChunkCollision(final int tileIndex) {
+        return getChunkCollision((tileIndex / heightInTiles) / TILES_PER_CHUNK, (tileIndex % heightInTiles) / TILES_PER_CHUNK);
+    }
+
+    /**
+     * @return the index in the chunk's per-tile arrays of a tile index from {@link #getTileIndex(int, int)}
+     */
+    private int getIndexInChunk(final int tileIndex) {
+        return (((tileIndex / heightInTiles) % TILES_PER_CHUNK) * TILES_PER_CHUNK) + ((tileIndex % heightInTiles) % TILES_PER_CHUNK);
+    }
+
+    /**
+     * @return the tile's angle in 256-step {@link Angle} format - flat if the index is -1.
+     */
+    public int getAngle(final int tileIndex) {
+        if (tileIndex < 0) return 0;
+        return getChunkCollision(tileIndex).angles[getIndexInChunk(tileIndex)] & 0xFF;
+    }
+
+    public int getSolidity(final int tileIndex) {
+        if (tileIndex < 0) return 0;
+        return getChunkCollision(tileIndex).solidities[getIndexInChunk(tileIndex)];
+    }
+
+    /**
+     * @return the ID of the tile the collision data at this index was copied from - the empty tile's ID if the index is -1.
+     */
+    public short getTileId(final int tileIndex) {
+        if (tileIndex < 0) return TileRegistry.EMPTY_TILE_ID;
+        return getChunkCollision(tileIndex).tileIds[getIndexInChunk(tileIndex)];
+    }
+
+    public Tile getTile(final int tileIndex) {
+        return tileRegistry.getTile(getTileId(tileIndex));
+    }
+
+    public int getWidthInTiles() {
+        return widthInTiles;
+    }
+
+    public int getHeightInTiles() {
+        return heightInTiles;
+    }
+}
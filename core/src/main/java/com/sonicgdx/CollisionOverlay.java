@@ -0,0 +1,211 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+import static com.sonicgdx.TileMap.CHUNK_LENGTH;
+import static com.sonicgdx.TileMap.TILES_PER_CHUNK;
+import static com.sonicgdx.TileMap.TILE_LENGTH;
+
+/**
+ * Draws the same height and width array debug views as {@link GameScreen#drawChunkHeightArray(int, int)} and
+ * {@link GameScreen#drawChunkWidthArray(int, int)}, but with one quad per chunk instead of one per column of every tile.
+ * <p>
+ * The collision data is uploaded once as two small data textures - the shapes in the {@link TileRegistry} and the
+ * tile IDs of every distinct chunk - and a fragment shader works out which pixels of the chunk are solid.
+ */
+public class CollisionOverlay implements Disposable {
+
+    private static final int SHAPES_PER_ROW = 64, CHUNKS_PER_ROW = 32;
+
+    private final ShaderProgram shader;
+    private Texture shapeTexture, tileIdTexture;
+    /**
+     * The position of each chunk's block of tile IDs in tileIdTexture. Chunks that are used several times in the
+     * map share the same block.
+     */
+    private final ObjectIntMap<Chunk> chunkSlots = new ObjectIntMap<>();
+    // The TileMap revision the textures were created from
+    private int builtRevision;
+
+    /**
+     * Uploads the collision data of the TileMap's current level, and re-uploads it whenever the level changes.
+     */
+    public CollisionOverlay() {
+        shader = new ShaderProgram(
+            Gdx.files.internal("shaders/collision-overlay.vert"),
+            Gdx.files.internal("shaders/collision-overlay.frag"));
+        if (!shader.isCompiled()) Gdx.app.error("CollisionOverlay", "Shader failed to compile, falling back to drawing every column\n" + shader.getLog());
+
+        createTextures();
+    }
+
+    private void createTextures() {
+        builtRevision = TileMap.getRevision();
+        chunkSlots.clear();
+        shapeTexture = createShapeTexture(TileMap.getTileRegistry());
+        tileIdTexture = createTileIdTexture();
+    }
+
+    private static Texture createShapeTexture(final TileRegistry tileRegistry) {
+        final int shapeCount = tileRegistry.getShapeCount();
+        final Pixmap pixmap = new Pixmap(
+            Math.min(shapeCount, SHAPES_PER_ROW) * TILE_LENGTH,
+            (shapeCount + SHAPES_PER_ROW - 1) / SHAPES_PER_ROW,
+            Pixmap.Format.RGBA8888);
+        pixmap.setBlending(Pixmap.Blending.None);
+
+        for (int shape = 0; shape < shapeCount; shape++) {
+            final short tileId = TileRegistry.toId(shape, 0);
+            for (int block = 0; block < TILE_LENGTH; block++) {
+                pixmap.drawPixel(
+                    ((shape % SHAPES_PER_ROW) * TILE_LENGTH) + block,
+                    shape / SHAPES_PER_ROW,
+                    toRGBA8888(tileRegistry.getHeight(tileId, block), tileRegistry.getWidth(tileId, block)));
+            }
+        }
+        return toDataTexture(pixmap);
+    }
+
+    private Texture createTileIdTexture() {
+        //Same as TileMap.getTile() - empty chunks are never drawn so they don't need a slot.
+        for (int chunkX = 0; chunkX < TileMap.getWidthInChunks(); chunkX++) {
+            for (int chunkY = 0; chunkY < TileMap.getColumnHeight(chunkX); chunkY++) {
+                final Chunk chunk = TileMap.getChunk(chunkX, chunkY);
+                if (!chunk.isEmpty() && !chunkSlots.containsKey(chunk)) chunkSlots.put(chunk, chunkSlots.size);
+            }
+        }
+
+        final int slotCount = Math.max(chunkSlots.size, 1);
+        final Pixmap pixmap = new Pixmap(
+            Math.min(slotCount, CHUNKS_PER_ROW) * TILES_PER_CHUNK,
+            ((slotCount + CHUNKS_PER_ROW - 1) / CHUNKS_PER_ROW) * TILES_PER_CHUNK,
+            Pixmap.Format.RGBA8888);
+        pixmap.setBlending(Pixmap.Blending.None);
+
+        for (int chunkX = 0; chunkX < TileMap.getWidthInChunks(); chunkX++) {
+            for (int chunkY = 0; chunkY < TileMap.getColumnHeight(chunkX); chunkY++) {
+                final Chunk chunk = TileMap.getChunk(chunkX, chunkY);
+                final int slot = chunkSlots.get(chunk, -1);
+                if (slot == -1) continue;
+                for (int tileX = 0; tileX < TILES_PER_CHUNK; tileX++) {
+                    for (int tileY = 0; tileY < TILES_PER_CHUNK; tileY++) {
+                        final short tileId = chunk.getTileId(tileX, tileY);
+                        //Pixmap rows go downwards, so the top tile of the chunk is in the first row of its slot
+                        pixmap.drawPixel(
+                            ((slot % CHUNKS_PER_ROW) * TILES_PER_CHUNK) + tileX,
+                            ((slot / CHUNKS_PER_ROW) * TILES_PER_CHUNK) + (TILES_PER_CHUNK - 1 - tileY),
+                            toRGBA8888(tileId & 0xFF, (tileId >> 8) & 0xFF));
+                    }
+                }
+            }
+        }
+        return toDataTexture(pixmap);
+    }
+
+    private static int toRGBA8888(final int red, final int green) {
+        return (red << 24) | (green << 16) | 0xFF;
+    }
+
+    private static Texture toDataTexture(final Pixmap pixmap) {
+        final Texture texture = new Texture(pixmap);
+        //Values must be read exactly, so they can't be blended with neighbouring texels
+        texture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        texture.setWrap(Texture.TextureWrap.ClampToEdge, Texture.TextureWrap.ClampToEdge);
+        pixmap.dispose();
+        return texture;
+    }
+
+    /**
+     * @return false if the shader couldn't be compiled on this device, in which case nothing should be drawn with this.
+     */
+    public boolean isCompiled() {
+        return shader.isCompiled();
+    }
+
+    /**
+     * Switches the batch to the overlay's shader. Must be called after batch.begin() and before drawChunk().
+     * @param drawWidthArrays true to draw width arrays, false to draw height arrays
+     */
+    public void begin(final Batch batch, final boolean drawWidthArrays) {
+        //Chunks (and possibly new shapes or a whole new level) have been added since the textures were uploaded
+        if (builtRevision != TileMap.getRevision()) {
+            shapeTexture.dispose();
+            tileIdTexture.dispose();
+            createTextures();
+        }
+
+        batch.setShader(shader);
+
+        //The batch binds tileIdTexture itself when it flushes, so the shapes use the next texture unit.
+        shapeTexture.bind(1);
+        Gdx.gl.glActiveTexture(GL20.GL_TEXTURE0);
+
+        shader.setUniformi("u_shapes", 1);
+        shader.setUniformf("u_tileIdTextureSize", tileIdTexture.getWidth(), tileIdTexture.getHeight());
+        shader.setUniformf("u_shapeTextureSize", shapeTexture.getWidth(), shapeTexture.getHeight());
+        shader.setUniformf("u_shapesPerRow", SHAPES_PER_ROW);
+        shader.setUniformf("u_widthMode", drawWidthArrays ? 1 : 0);
+    }
+
+    /**
+     * Draws the collision data of a chunk as a single quad.
+     * @param chunkX the chunk number on the x-axis - not the same as its co-ordinate
+     * @param chunkY the chunk number on the y-axis - not the same as its co-ordinate
+     */
+    public void drawChunk(final Batch batch, final int chunkX, final int chunkY) {
+        final int slot = chunkSlots.get(TileMap.getChunk(chunkX, chunkY), -1);
+        if (slot == -1) return;
+
+        final float textureWidth = tileIdTexture.getWidth(), textureHeight = tileIdTexture.getHeight();
+        final int slotX = (slot % CHUNKS_PER_ROW) * TILES_PER_CHUNK, slotY = (slot / CHUNKS_PER_ROW) * TILES_PER_CHUNK;
+
+        //The bottom of the quad uses the bottom row of the slot, which is the slot's last row in the texture
+        batch.draw(
+            tileIdTexture,
+            chunkX * CHUNK_LENGTH,
+            chunkY * CHUNK_LENGTH,
+            CHUNK_LENGTH,
+            CHUNK_LENGTH,
+            slotX / textureWidth,
+            (slotY + TILES_PER_CHUNK) / textureHeight,
+            (slotX + TILES_PER_CHUNK) / textureWidth,
+            slotY / textureHeight);
+    }
+
+    /**
+     * Draws everything queued since begin() and switches the batch back to its default shader.
+     */
+    public void end(final Batch batch) {
+        batch.setShader(null);
+    }
+
+    @Override
+    public void dispose() {
+        shader.dispose();
+        shapeTexture.dispose();
+        tileIdTexture.dispose();
+    }
+}
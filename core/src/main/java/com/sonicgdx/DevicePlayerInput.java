@@ -0,0 +1,183 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.InputAdapter;
+import com.badlogic.gdx.controllers.Controller;
+import com.badlogic.gdx.controllers.ControllerListener;
+import com.badlogic.gdx.controllers.ControllerMapping;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Collects the player's controls from keyboard and controller events as they arrive, so that the physics only has to
+ * read two ints each step instead of asking the backend about every key.
+ * <p>
+ * Must be registered with both Gdx.input.setInputProcessor() and Controllers.addListener().
+ */
+public class DevicePlayerInput extends InputAdapter implements PlayerInput, ControllerListener {
+
+    /**
+     * How far a stick has to be pushed before it counts as pressing a direction.
+     */
+    private static final float STICK_DEADZONE = 0.5F;
+    private static final int ACTION_COUNT = 7;
+
+    private final IntIntMap keyBindings = new IntIntMap();
+    // How many keys or buttons are holding down each action, indexed by the position of the action's bit.
+    // Several keys can be bound to the same action, so it is only released once all of them are.
+    private final int[] keyCounts = new int[ACTION_COUNT], buttonCounts = new int[ACTION_COUNT];
+    // The directions each controller's left stick is being pushed in
+    private final ObjectIntMap<Controller> stickActions = new ObjectIntMap<>();
+    private int heldActions, pressedActions;
+
+    public DevicePlayerInput() {
+        keyBindings.put(Input.Keys.D, RIGHT);
+        keyBindings.put(Input.Keys.RIGHT, RIGHT);
+        keyBindings.put(Input.Keys.A, LEFT);
+        keyBindings.put(Input.Keys.LEFT, LEFT);
+        keyBindings.put(Input.Keys.W, UP);
+        keyBindings.put(Input.Keys.UP, UP);
+        keyBindings.put(Input.Keys.S, DOWN);
+        keyBindings.put(Input.Keys.DOWN, DOWN);
+        keyBindings.put(Input.Keys.SPACE, JUMP);
+        keyBindings.put(Input.Keys.Q, DEBUG_TOGGLE);
+        keyBindings.put(Input.Keys.E, DEBUG_ROTATE);
+    }
+
+    @Override
+    public int getHeldActions() {
+        return heldActions;
+    }
+
+    @Override
+    public int consumePressedActions() {
+        final int actions = pressedActions;
+        pressedActions = 0;
+        return actions;
+    }
+
+    /**
+     * Releases everything, e.g. when the screen is hidden and would miss the events for keys being let go.
+     */
+    public void reset() {
+        for (int i = 0; i < ACTION_COUNT; i++) {
+            keyCounts[i] = 0;
+            buttonCounts[i] = 0;
+        }
+        stickActions.clear();
+        heldActions = 0;
+        pressedActions = 0;
+    }
+
+    @Override
+    public boolean keyDown(final int keycode) {
+        final int action = keyBindings.get(keycode, 0);
+        if (action == 0) return false;
+        keyCounts[Integer.numberOfTrailingZeros(action)]++;
+        updateHeldActions();
+        return true;
+    }
+
+    @Override
+    public boolean keyUp(final int keycode) {
+        final int action = keyBindings.get(keycode, 0);
+        if (action == 0) return false;
+        release(keyCounts, action);
+        return true;
+    }
+
+    @Override
+    public void connected(final Controller controller) {
+
+    }
+
+    @Override
+    public void disconnected(final Controller controller) {
+        //The controller's buttons aren't tracked separately, so release all of them rather than leave any stuck down
+        for (int i = 0; i < ACTION_COUNT; i++) buttonCounts[i] = 0;
+        stickActions.remove(controller, 0);
+        updateHeldActions();
+    }
+
+    @Override
+    public boolean buttonDown(final Controller controller, final int buttonCode) {
+        final int action = getButtonAction(controller.getMapping(), buttonCode);
+        if (action == 0) return false;
+        buttonCounts[Integer.numberOfTrailingZeros(action)]++;
+        updateHeldActions();
+        return true;
+    }
+
+    @Override
+    public boolean buttonUp(final Controller controller, final int buttonCode) {
+        final int action = getButtonAction(controller.getMapping(), buttonCode);
+        if (action == 0) return false;
+        release(buttonCounts, action);
+        return true;
+    }
+
+    @Override
+    public boolean axisMoved(final Controller controller, final int axisCode, final float value) {
+        final ControllerMapping mapping = controller.getMapping();
+        if (axisCode != mapping.axisLeftX && axisCode != mapping.axisLeftY) return false;
+
+        final float x = controller.getAxis(mapping.axisLeftX), y = controller.getAxis(mapping.axisLeftY);
+        int actions = 0;
+        if (x > STICK_DEADZONE) actions |= RIGHT;
+        else if (x < -STICK_DEADZONE) actions |= LEFT;
+        //Up is negative on controller axes
+        if (y < -STICK_DEADZONE) actions |= UP;
+        else if (y > STICK_DEADZONE) actions |= DOWN;
+
+        stickActions.put(controller, actions);
+        updateHeldActions();
+        return true;
+    }
+
+    private static int getButtonAction(final ControllerMapping mapping, final int buttonCode) {
+        if (buttonCode == mapping.buttonDpadRight) return RIGHT;
+        if (buttonCode == mapping.buttonDpadLeft) return LEFT;
+        if (buttonCode == mapping.buttonDpadUp) return UP;
+        if (buttonCode == mapping.buttonDpadDown) return DOWN;
+        if (buttonCode == mapping.buttonA || buttonCode == mapping.buttonB) return JUMP;
+        if (buttonCode == mapping.buttonBack) return DEBUG_TOGGLE;
+        if (buttonCode == mapping.buttonY) return DEBUG_ROTATE;
+        return 0;
+    }
+
+    private void release(final int[] counts, final int action) {
+        final int index = Integer.numberOfTrailingZeros(action);
+        //Keys which were already down before this started listening are released without ever being pressed
+        if (counts[index] > 0) counts[index]--;
+        updateHeldActions();
+    }
+
+    private void updateHeldActions() {
+        int actions = 0;
+        for (int i = 0; i < ACTION_COUNT; i++) {
+            if (keyCounts[i] > 0 || buttonCounts[i] > 0) actions |= 1 << i;
+        }
+        final ObjectIntMap.Values sticks = stickActions.values();
+        while (sticks.hasNext()) actions |= sticks.next();
+
+        //Anything which has just started being held down counts as a press, until the next step consumes it
+        pressedActions |= actions & ~heldActions;
+        heldActions = actions;
+    }
+}
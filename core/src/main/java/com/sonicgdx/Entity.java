@@ -25,6 +25,8 @@ import com.badlogic.gdx.math.Vector2;
  */
 public abstract class Entity {
     protected Vector2 position;
+    // Where the entity was before the last physics step, so that it can be drawn in between the last two steps
+    protected final Vector2 previousPosition;
     protected float leftEdgeX, rightEdgeX, bottomEdgeY, topEdgeY;
 
     protected final float WIDTH_RADIUS, HEIGHT_RADIUS;
@@ -34,16 +36,39 @@ public abstract class Entity {
     Entity(float widthRadius, float heightRadius) {
         sprite = new Sprite();
         position = new Vector2();
+        previousPosition = new Vector2();
         this.WIDTH_RADIUS = widthRadius; this.HEIGHT_RADIUS = heightRadius;
     }
 
     /**
-     * @param delta time since last frame. Used to make physics similar to how they would be at 60FPS
-     * even with higher, lower or varying frame rates.
+     * Advances the entity's physics by one step.
+     * @param delta the length of a physics step in seconds. This is always the same, regardless of the frame rate.
      * @see GameScreen#render(float)
      */
     public abstract void update(float delta);
 
+    /**
+     * Moves the sprite to where the entity would be between its last two physics steps, so that movement still looks
+     * smooth when more frames are drawn than physics steps are taken (or the other way round).
+     * @param alpha how far through the next physics step the frame is, from 0 (the previous position) to 1 (the current one)
+     */
+    public abstract void updateSprite(float alpha);
+
+    /**
+     * Must be called before every call to update() - see previousPosition.
+     */
+    public void savePreviousPosition() {
+        previousPosition.set(position);
+    }
+
+    public float getInterpolatedXPosition(final float alpha) {
+        return MathUtils.lerp(previousPosition.x, position.x, alpha);
+    }
+
+    public float getInterpolatedYPosition(final float alpha) {
+        return MathUtils.lerp(previousPosition.y, position.y, alpha);
+    }
+
     /**
      * Ensures the player doesn't go into negative co-ordinates as calculations may not
      * take that into account
@@ -54,7 +79,11 @@ public abstract class Entity {
 
         //Respawns the player at the starting position if they fall off the terrain
         //TODO replace with death animation and retry screen before respawning
-        if (position.y <= -100) position.set(50,200);
+        //The previous position is moved as well, so that the sprite isn't drawn sliding from where it fell
+        if (position.y <= -100) {
+            position.set(50,200);
+            previousPosition.set(position);
+        }
     }
 
     public void calculateCornerPositions() {
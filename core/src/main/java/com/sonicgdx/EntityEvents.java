@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Side effects an {@link EntitySystem} wants while entities are being updated - spawning and despawning entities and
+ * playing sounds. Systems can run on several threads at once, so nothing may change the {@link EntityStore}'s size or
+ * touch audio until every system has finished. Each part of the update records into its own EntityEvents instead, and
+ * the store applies them afterwards in entity order, so the result is the same however the work was split up.
+ * <p>
+ * Spawns and sounds are recorded with the entity which caused them. Systems run one type at a time, so they aren't
+ * recorded in entity order - they are put in that order before being applied, keeping the order they were recorded in
+ * for the same entity.
+ */
+public final class EntityEvents {
+
+    private final IntArray despawns = new IntArray();
+
+    private final IntArray spawnEntities = new IntArray();
+    private final ByteArray spawnTypes = new ByteArray();
+    // Position, radii and velocity of each spawn, SPAWN_FLOATS at a time
+    private final FloatArray spawnValues = new FloatArray();
+    private static final int SPAWN_FLOATS = 6;
+
+    private final IntArray soundEntities = new IntArray();
+    private final IntArray soundIds = new IntArray();
+    // Where each sound was played, two at a time
+    private final FloatArray soundPositions = new FloatArray();
+
+    // The indices of the spawns and sounds sorted by entity, filled in by sortByEntity()
+    private final IntArray spawnOrder = new IntArray();
+    private final IntArray soundOrder = new IntArray();
+
+    /**
+     * Removes the entity once the update has finished. Despawning the same entity twice only removes it once.
+     */
+    public void despawn(final int entity) {
+        despawns.add(entity);
+    }
+
+    /**
+     * Adds a new entity once the update has finished. It isn't updated until the next step.
+     * @param entity the entity being updated which caused the spawn
+     */
+    public void spawn(final int entity, final byte type, final float x, final float y, final float widthRadius, final float heightRadius, final float velocityX, final float velocityY) {
+        spawnEntities.add(entity);
+        spawnTypes.add(type);
+        spawnValues.add(x, y, widthRadius, heightRadius);
+        spawnValues.add(velocityX, velocityY);
+    }
+
+    /**
+     * Plays a sound once the update has finished - see {@link EntityStore#setSoundListener(EntityStore.SoundListener)}.
+     * @param entity the entity being updated which played the sound
+     */
+    public void playSound(final int entity, final int soundId, final float x, final float y) {
+        soundEntities.add(entity);
+        soundIds.add(soundId);
+        soundPositions.add(x, y);
+    }
+
+    void clear() {
+        despawns.clear();
+        spawnEntities.clear();
+        spawnTypes.clear();
+        spawnValues.clear();
+        soundEntities.clear();
+        soundIds.clear();
+        soundPositions.clear();
+        spawnOrder.clear();
+        soundOrder.clear();
+    }
+
+    IntArray getDespawns() {
+        return despawns;
+    }
+
+    /**
+     * Puts the spawns and sounds in entity order for {@link #applySpawns(EntityStore)} and
+     * {@link #playSounds(EntityStore.SoundListener)}.
+     */
+    void sortByEntity() {
+        sortByEntity(spawnEntities, spawnOrder);
+        sortByEntity(soundEntities, soundOrder);
+    }
+
+    /**
+     * An insertion sort, since the entities are already in order within each type and it doesn't allocate.
+     * Entries for the same entity stay in the order they were recorded.
+     */
+    private static void sortByEntity(final IntArray entities, final IntArray order) {
+        order.clear();
+        for (int index = 0; index < entities.size; index++) {
+            final int entity = entities.get(index);
+            int position = order.size;
+            order.add(index);
+            while (position > 0 && entities.get(order.get(position - 1)) > entity) {
+                order.set(position, order.get(position - 1));
+                position--;
+            }
+            order.set(position, index);
+        }
+    }
+
+    /**
+     * Adds every spawn to the store in entity order.
+     */
+    void applySpawns(final EntityStore store) {
+        for (int spawn = 0; spawn < spawnOrder.size; spawn++) applySpawn(spawnOrder.get(spawn), store);
+    }
+
+    private void applySpawn(final int spawn, final EntityStore store) {
+        final float[] values = spawnValues.items;
+        final int offset = spawn * SPAWN_FLOATS;
+        final int entity = store.add(spawnTypes.get(spawn), values[offset], values[offset + 1], values[offset + 2], values[offset + 3]);
+        store.setVelocity(entity, values[offset + 4], values[offset + 5]);
+    }
+
+    void playSounds(final EntityStore.SoundListener listener) {
+        for (int index = 0; index < soundOrder.size; index++) {
+            final int sound = soundOrder.get(index);
+            listener.playSound(soundIds.get(sound), soundPositions.get(sound * 2), soundPositions.get((sound * 2) + 1));
+        }
+    }
+}
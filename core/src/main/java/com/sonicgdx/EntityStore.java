@@ -0,0 +1,499 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.sonicgdx.TileMap.CHUNK_LENGTH;
+
+/**
+ * Holds large numbers of simple entities - rings, badniks and other objects - as parallel arrays of primitives instead
+ * of one {@link Entity} object each, so that updating them is a few tight loops over contiguous memory.
+ * <p>
+ * An entity is just its index in the arrays. Every entity has a type ID, and each type's behaviour is an
+ * {@link EntitySystem} registered with {@link #setSystem(byte, EntitySystem)}. Types without a system (e.g. rings that
+ * never move) are only kept within the boundaries. Removing an entity moves the last entity into its index, so indices
+ * are only stable until the next removal.
+ * <p>
+ * The arrays are exposed directly for systems to loop over, and grow when they are full. Entities are also kept in a
+ * {@link SpatialGrid}, so that finding the ones near the player only costs as much as the number of nearby entities.
+ * <p>
+ * Entities whose last step didn't move them and which have no velocity are resting - systems skip them, since their
+ * next step would change nothing either. They are woken by {@link #setVelocity(int, float, float)},
+ * {@link #wake(int)} or any change to the TileMap.
+ * <p>
+ * With a {@link #setParallelRunner(ParallelRunner) ParallelRunner}, large stores are split into ranges of entities
+ * which are updated on several threads at once. Spawns, despawns and sounds are collected per range and applied in entity
+ * order afterwards, so the result is exactly the same as updating on one thread.
+ */
+public final class EntityStore {
+
+    /**
+     * The lowest y position an entity can reach before it is put back at its spawn position, the same as
+     * {@link Entity#enforceBoundaries()}.
+     */
+    private static final float LOWEST_Y_POSITION = -100;
+    // One per possible type ID
+    private final EntitySystem[] systems = new EntitySystem[256];
+
+    private int size;
+    private byte[] types;
+    private float[] xPositions, yPositions, previousXPositions, previousYPositions, spawnXPositions, spawnYPositions;
+    private float[] xVelocities, yVelocities;
+    private float[] widthRadii, heightRadii;
+    private float[] leftEdges, rightEdges, bottomEdges, topEdges;
+    private boolean[] resting;
+    // The TileMap revision of the last update, since resting entities have to wake up when the terrain changes
+    private int restRevision;
+    private final SpatialGrid grid;
+
+    private ParallelRunner parallelRunner = ParallelRunner.SEQUENTIAL;
+    // Ranges shorter than this aren't worth handing to another thread
+    private int minEntitiesPerPartition = 1024;
+    // One per partition of the current update, reused between steps
+    private EntityEvents[] partitionEvents = {new EntityEvents()};
+    private final IntArray despawns = new IntArray();
+    private SoundListener soundListener;
+    // Shared with every partition during update()
+    private int partitionCount;
+    private float updateDelta;
+    private final ParallelRunner.Work updatePartition = this::updatePartition;
+
+    /**
+     * Plays the sounds requested with {@link EntityEvents#playSound(int, float, float)}.
+     */
+    public interface SoundListener {
+        void playSound(int soundId, float x, float y);
+    }
+
+    /**
+     * @param initialCapacity how many entities fit before the arrays have to grow
+     */
+    public EntityStore(final int initialCapacity) {
+        if (initialCapacity <= 0) throw new IllegalArgumentException("initialCapacity is " + initialCapacity + " but must be positive");
+        types = new byte[initialCapacity];
+        xPositions = new float[initialCapacity];
+        yPositions = new float[initialCapacity];
+        previousXPositions = new float[initialCapacity];
+        previousYPositions = new float[initialCapacity];
+        spawnXPositions = new float[initialCapacity];
+        spawnYPositions = new float[initialCapacity];
+        xVelocities = new float[initialCapacity];
+        yVelocities = new float[initialCapacity];
+        widthRadii = new float[initialCapacity];
+        heightRadii = new float[initialCapacity];
+        leftEdges = new float[initialCapacity];
+        rightEdges = new float[initialCapacity];
+        bottomEdges = new float[initialCapacity];
+        topEdges = new float[initialCapacity];
+        resting = new boolean[initialCapacity];
+        grid = new SpatialGrid(initialCapacity);
+    }
+
+    public EntityStore() {
+        this(256);
+    }
+
+    /**
+     * Adds a still entity, which is put back at this position if it falls out of the level.
+     * @return the new entity's index
+     */
+    public int add(final byte type, final float x, final float y, final float widthRadius, final float heightRadius) {
+        if (size == types.length) grow(size * 2);
+        final int entity = size++;
+        types[entity] = type;
+        xPositions[entity] = previousXPositions[entity] = spawnXPositions[entity] = x;
+        yPositions[entity] = previousYPositions[entity] = spawnYPositions[entity] = y;
+        xVelocities[entity] = yVelocities[entity] = 0;
+        resting[entity] = false;
+        widthRadii[entity] = widthRadius;
+        heightRadii[entity] = heightRadius;
+        calculateCornerPositions(entity, entity + 1);
+        grid.insert(entity, leftEdges[entity], rightEdges[entity], bottomEdges[entity], topEdges[entity]);
+        return entity;
+    }
+
+    /**
+     * Removes an entity by moving the last entity into its index.
+     * @return the index the moved entity used to have, which is now invalid - equal to entity if it was the last one
+     */
+    public int remove(final int entity) {
+        if (entity < 0 || entity >= size) throw new IllegalArgumentException("There is no entity " + entity);
+        final int last = --size;
+        grid.remove(entity, last);
+        types[entity] = types[last];
+        xPositions[entity] = xPositions[last];
+        yPositions[entity] = yPositions[last];
+        previousXPositions[entity] = previousXPositions[last];
+        previousYPositions[entity] = previousYPositions[last];
+        spawnXPositions[entity] = spawnXPositions[last];
+        spawnYPositions[entity] = spawnYPositions[last];
+        xVelocities[entity] = xVelocities[last];
+        yVelocities[entity] = yVelocities[last];
+        widthRadii[entity] = widthRadii[last];
+        heightRadii[entity] = heightRadii[last];
+        leftEdges[entity] = leftEdges[last];
+        rightEdges[entity] = rightEdges[last];
+        bottomEdges[entity] = bottomEdges[last];
+        topEdges[entity] = topEdges[last];
+        resting[entity] = resting[last];
+        return last;
+    }
+
+    public void clear() {
+        size = 0;
+        grid.clear();
+    }
+
+    private void grow(final int capacity) {
+        types = Arrays.copyOf(types, capacity);
+        xPositions = Arrays.copyOf(xPositions, capacity);
+        yPositions = Arrays.copyOf(yPositions, capacity);
+        previousXPositions = Arrays.copyOf(previousXPositions, capacity);
+        previousYPositions = Arrays.copyOf(previousYPositions, capacity);
+        spawnXPositions = Arrays.copyOf(spawnXPositions, capacity);
+        spawnYPositions = Arrays.copyOf(spawnYPositions, capacity);
+        xVelocities = Arrays.copyOf(xVelocities, capacity);
+        yVelocities = Arrays.copyOf(yVelocities, capacity);
+        widthRadii = Arrays.copyOf(widthRadii, capacity);
+        heightRadii = Arrays.copyOf(heightRadii, capacity);
+        leftEdges = Arrays.copyOf(leftEdges, capacity);
+        rightEdges = Arrays.copyOf(rightEdges, capacity);
+        bottomEdges = Arrays.copyOf(bottomEdges, capacity);
+        topEdges = Arrays.copyOf(topEdges, capacity);
+        resting = Arrays.copyOf(resting, capacity);
+        grid.grow(capacity);
+    }
+
+    /**
+     * @param system updates every entity of this type, or null for entities of this type to stay still
+     */
+    public void setSystem(final byte type, final EntitySystem system) {
+        systems[type & 0xFF] = system;
+    }
+
+    /**
+     * @param parallelRunner runs the partitions of each update, possibly on several threads
+     */
+    public void setParallelRunner(final ParallelRunner parallelRunner) {
+        setParallelRunner(parallelRunner, minEntitiesPerPartition);
+    }
+
+    /**
+     * @param parallelRunner runs the partitions of each update, possibly on several threads
+     * @param minEntitiesPerPartition the fewest entities that are given their own partition
+     */
+    public void setParallelRunner(final ParallelRunner parallelRunner, final int minEntitiesPerPartition) {
+        if (minEntitiesPerPartition <= 0) throw new IllegalArgumentException("minEntitiesPerPartition is " + minEntitiesPerPartition + " but must be positive");
+        this.parallelRunner = parallelRunner;
+        this.minEntitiesPerPartition = minEntitiesPerPartition;
+    }
+
+    public void setSoundListener(final SoundListener soundListener) {
+        this.soundListener = soundListener;
+    }
+
+    /**
+     * Advances every entity by one physics step - the previous positions are saved, each type's system runs, and
+     * then the boundaries and corner positions are updated. Those all happen separately in each partition. The grid
+     * cells and the systems' events are then applied on the calling thread.
+     * @param delta the length of a physics step in seconds
+     */
+    public void update(final float delta) {
+        if (restRevision != TileMap.getRevision()) {
+            Arrays.fill(resting, 0, size, false);
+            restRevision = TileMap.getRevision();
+        }
+        System.arraycopy(xPositions, 0, previousXPositions, 0, size);
+        System.arraycopy(yPositions, 0, previousYPositions, 0, size);
+
+        partitionCount = Math.max(1, Math.min(parallelRunner.getParallelism(), size / minEntitiesPerPartition));
+        if (partitionEvents.length < partitionCount) {
+            final int oldLength = partitionEvents.length;
+            partitionEvents = Arrays.copyOf(partitionEvents, partitionCount);
+            for (int partition = oldLength; partition < partitionCount; partition++) partitionEvents[partition] = new EntityEvents();
+        }
+        updateDelta = delta;
+        if (partitionCount == 1) updatePartition(0);
+        else {
+            bakeCollision();
+            parallelRunner.runAll(partitionCount, updatePartition);
+        }
+
+        for (int entity = 0; entity < size; entity++) {
+            if (!resting[entity]) grid.move(entity, leftEdges[entity], rightEdges[entity], bottomEdges[entity], topEdges[entity]);
+        }
+        applyEvents();
+    }
+
+    /**
+     * The CollisionMap bakes chunks the first time they are looked into, so the chunks around every entity which might
+     * be updated are baked here first - the partitions then only read it. Systems are expected to only look within a
+     * chunk of their entities.
+     */
+    private void bakeCollision() {
+        final CollisionMap collisionMap = TileMap.getCollisionMap();
+        for (int entity = 0; entity < size; entity++) {
+            if (resting[entity]) continue;
+            collisionMap.bakeArea(xPositions[entity] - widthRadii[entity] - CHUNK_LENGTH, xPositions[entity] + widthRadii[entity] + CHUNK_LENGTH,
+                yPositions[entity] - heightRadii[entity] - CHUNK_LENGTH, yPositions[entity] + heightRadii[entity] + CHUNK_LENGTH);
+        }
+    }
+
+    private int getPartitionStart(final int partition) {
+        return (int) (((long) size * partition) / partitionCount);
+    }
+
+    private void updatePartition(final int partition) {
+        final int from = getPartitionStart(partition), to = getPartitionStart(partition + 1);
+        final EntityEvents events = partitionEvents[partition];
+        for (int type = 0; type < systems.length; type++) {
+            if (systems[type] != null) systems[type].update(this, (byte) type, from, to, updateDelta, events);
+        }
+        enforceBoundaries(from, to);
+        calculateCornerPositions(from, to);
+        updateResting(from, to);
+    }
+
+    /**
+     * An entity which didn't move and has no velocity will stay where it is, as long as nothing else changes it.
+     * @param to exclusive
+     */
+    private void updateResting(final int from, final int to) {
+        for (int entity = from; entity < to; entity++) {
+            resting[entity] = xPositions[entity] == previousXPositions[entity] && yPositions[entity] == previousYPositions[entity]
+                && xVelocities[entity] == 0 && yVelocities[entity] == 0;
+        }
+    }
+
+    /**
+     * Applies every partition's events in entity order, so the order doesn't depend on how many partitions there were.
+     */
+    private void applyEvents() {
+        //Removing from the highest index down means the entities moved into the gaps are never ones still to be removed
+        despawns.clear();
+        for (int partition = 0; partition < partitionCount; partition++) despawns.addAll(partitionEvents[partition].getDespawns());
+        despawns.sort();
+        for (int i = despawns.size - 1; i >= 0; i--) {
+            if (i < despawns.size - 1 && despawns.get(i) == despawns.get(i + 1)) continue;
+            remove(despawns.get(i));
+        }
+
+        for (int partition = 0; partition < partitionCount; partition++) {
+            //Each partition is a range of entities after the last one, so they only need sorting within a partition
+            final EntityEvents events = partitionEvents[partition];
+            events.sortByEntity();
+            events.applySpawns(this);
+            if (soundListener != null) events.playSounds(soundListener);
+            events.clear();
+        }
+    }
+
+    /**
+     * Finds every entity whose box overlaps the given box, or touches its edge.
+     * @param results the indices of the entities found are added to this, in no particular order
+     */
+    public void queryOverlaps(final float left, final float right, final float bottom, final float top, final IntArray results) {
+        grid.query(this, left, right, bottom, top, results);
+    }
+
+    /**
+     * Finds every entity in the store which overlaps another entity, such as the player, using the edges from its last
+     * {@link Entity#calculateCornerPositions()}.
+     * @param results the indices of the entities found are added to this, in no particular order
+     */
+    public void queryOverlaps(final Entity entity, final IntArray results) {
+        grid.query(this, entity.leftEdgeX, entity.rightEdgeX, entity.bottomEdgeY, entity.topEdgeY, results);
+    }
+
+    /**
+     * Same as {@link Entity#enforceBoundaries()} for a range of entities. Entities are put back at their own spawn
+     * positions instead of the player's.
+     * @param to exclusive
+     */
+    void enforceBoundaries(final int from, final int to) {
+        for (int entity = from; entity < to; entity++) {
+            xPositions[entity] = Math.max(xPositions[entity], 0);
+        }
+        for (int entity = from; entity < to; entity++) {
+            if (yPositions[entity] <= LOWEST_Y_POSITION) {
+                xPositions[entity] = spawnXPositions[entity];
+                yPositions[entity] = spawnYPositions[entity];
+                previousXPositions[entity] = spawnXPositions[entity];
+                previousYPositions[entity] = spawnYPositions[entity];
+            }
+        }
+    }
+
+    /**
+     * Same as {@link Entity#calculateCornerPositions()} for a range of entities.
+     * @param to exclusive
+     */
+    void calculateCornerPositions(final int from, final int to) {
+        for (int entity = from; entity < to; entity++) leftEdges[entity] = xPositions[entity] - widthRadii[entity];
+        for (int entity = from; entity < to; entity++) rightEdges[entity] = xPositions[entity] + widthRadii[entity];
+        for (int entity = from; entity < to; entity++) bottomEdges[entity] = yPositions[entity] - heightRadii[entity];
+        for (int entity = from; entity < to; entity++) topEdges[entity] = yPositions[entity] + heightRadii[entity];
+    }
+
+    /**
+     * @return the number of bytes {@link #writeState(ByteBuffer)} currently writes
+     */
+    int getStateSize() {
+        return Integer.BYTES + (size * (1 + (10 * Float.BYTES)));
+    }
+
+    /**
+     * Writes every entity, so that the store can be put back with {@link #readState(ByteBuffer)} - see
+     * {@link StateHistory}. Systems, listeners and the parallel runner aren't part of the state.
+     */
+    void writeState(final ByteBuffer buffer) {
+        buffer.putInt(size);
+        for (int entity = 0; entity < size; entity++) buffer.put(types[entity]);
+        putFloats(buffer, xPositions);
+        putFloats(buffer, yPositions);
+        putFloats(buffer, previousXPositions);
+        putFloats(buffer, previousYPositions);
+        putFloats(buffer, spawnXPositions);
+        putFloats(buffer, spawnYPositions);
+        putFloats(buffer, xVelocities);
+        putFloats(buffer, yVelocities);
+        putFloats(buffer, widthRadii);
+        putFloats(buffer, heightRadii);
+    }
+
+    /**
+     * Replaces every entity with the ones written by {@link #writeState(ByteBuffer)}. The arrays only grow (and
+     * allocate) if there are more entities than they can hold.
+     */
+    void readState(final ByteBuffer buffer) {
+        final int newSize = buffer.getInt();
+        if (newSize > types.length) grow(Math.max(newSize, types.length * 2));
+        size = newSize;
+        for (int entity = 0; entity < size; entity++) types[entity] = buffer.get();
+        getFloats(buffer, xPositions);
+        getFloats(buffer, yPositions);
+        getFloats(buffer, previousXPositions);
+        getFloats(buffer, previousYPositions);
+        getFloats(buffer, spawnXPositions);
+        getFloats(buffer, spawnYPositions);
+        getFloats(buffer, xVelocities);
+        getFloats(buffer, yVelocities);
+        getFloats(buffer, widthRadii);
+        getFloats(buffer, heightRadii);
+
+        //The edges and grid cells only depend on the positions and radii, so they are worked out again
+        calculateCornerPositions(0, size);
+        Arrays.fill(resting, 0, size, false);
+        grid.clear();
+        for (int entity = 0; entity < size; entity++) {
+            grid.insert(entity, leftEdges[entity], rightEdges[entity], bottomEdges[entity], topEdges[entity]);
+        }
+    }
+
+    private void putFloats(final ByteBuffer buffer, final float[] values) {
+        for (int entity = 0; entity < size; entity++) buffer.putFloat(values[entity]);
+    }
+
+    private void getFloats(final ByteBuffer buffer, final float[] values) {
+        for (int entity = 0; entity < size; entity++) values[entity] = buffer.getFloat();
+    }
+
+    public float getInterpolatedXPosition(final int entity, final float alpha) {
+        return MathUtils.lerp(previousXPositions[entity], xPositions[entity], alpha);
+    }
+
+    public float getInterpolatedYPosition(final int entity, final float alpha) {
+        return MathUtils.lerp(previousYPositions[entity], yPositions[entity], alpha);
+    }
+
+    public void setVelocity(final int entity, final float x, final float y) {
+        xVelocities[entity] = x;
+        yVelocities[entity] = y;
+        resting[entity] = false;
+    }
+
+    /**
+     * Makes a resting entity take its next step. Must be called after changing an entity's position or velocity
+     * through the arrays from outside of a system.
+     */
+    public void wake(final int entity) {
+        resting[entity] = false;
+    }
+
+    /**
+     * Systems should skip entities which are resting, since updating them would change nothing.
+     * @return whether each entity is resting, by index
+     */
+    public boolean[] getResting() {
+        return resting;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // The arrays below are only valid up to getSize(), and are replaced when the store grows - don't keep them between steps.
+
+    public byte[] getTypes() {
+        return types;
+    }
+
+    public float[] getXPositions() {
+        return xPositions;
+    }
+
+    public float[] getYPositions() {
+        return yPositions;
+    }
+
+    public float[] getXVelocities() {
+        return xVelocities;
+    }
+
+    public float[] getYVelocities() {
+        return yVelocities;
+    }
+
+    public float[] getWidthRadii() {
+        return widthRadii;
+    }
+
+    public float[] getHeightRadii() {
+        return heightRadii;
+    }
+
+    public float[] getLeftEdges() {
+        return leftEdges;
+    }
+
+    public float[] getRightEdges() {
+        return rightEdges;
+    }
+
+    public float[] getBottomEdges() {
+        return bottomEdges;
+    }
+
+    public float[] getTopEdges() {
+        return topEdges;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+/**
+ * Updates every entity of one type in an {@link EntityStore}. Systems should loop over the store's arrays directly
+ * rather than calling anything per entity.
+ * <p>
+ * The store can split its entities into ranges which are updated on different threads at the same time, so a system
+ * must only write to the entities in its range, must only read the TileMap within a chunk of its entities (the store
+ * bakes the {@link CollisionMap} there beforehand), and must not keep any state of its own between entities. Anything else goes through the {@link EntityEvents}.
+ * <p>
+ * Entities which are {@link EntityStore#getResting() resting} should be skipped - their last step changed nothing.
+ */
+public interface EntitySystem {
+    /**
+     * Advances the entities of the given type within a range by one physics step.
+     * @param type the type this system was registered for
+     * @param from the first entity in the range
+     * @param to one past the last entity in the range
+     * @param delta the length of a physics step in seconds
+     * @param events where spawns, despawns and sounds are recorded until the whole update has finished
+     */
+    void update(EntityStore store, byte type, int from, int to, float delta, EntityEvents events);
+}
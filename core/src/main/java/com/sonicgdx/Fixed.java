@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Fixed-point numbers with 8 fractional bits, stored in ints - the 1/256 pixel subpixels of the original games.
+ * <p>
+ * Only ints are needed for positions, speeds and sensor distances in this format, so the physics gives exactly the
+ * same results on every backend. It is also cheaper on the web backends, where floats go through JavaScript's doubles
+ * and longs are emulated. Products must stay within an int, which holds positions up to 8 million pixels.
+ */
+public final class Fixed {
+
+    public static final int SHIFT = 8;
+    /**
+     * One whole pixel.
+     */
+    public static final int ONE = 1 << SHIFT;
+    private static final int HALF = ONE >> 1;
+
+    private Fixed() {
+    }
+
+    /**
+     * @return the nearest fixed-point value
+     */
+    public static int fromFloat(final float value) {
+        return MathUtils.round(value * ONE);
+    }
+
+    /**
+     * @return the exact value as a float, for anything below 65536 pixels
+     */
+    public static float toFloat(final int value) {
+        return value / (float) ONE;
+    }
+
+    public static int fromInt(final int pixels) {
+        return pixels << SHIFT;
+    }
+
+    /**
+     * @return the nearest whole pixel, rounding halves up - the same as {@link MathUtils#round(float)} of the float value
+     */
+    public static int round(final int value) {
+        return (value + HALF) >> SHIFT;
+    }
+
+    /**
+     * Multiplies two fixed-point values. The result is rounded towards zero, so that moving left and moving right lose
+     * the same amount.
+     */
+    public static int mul(final int a, final int b) {
+        return (a * b) / ONE;
+    }
+}
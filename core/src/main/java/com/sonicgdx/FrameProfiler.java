@@ -0,0 +1,247 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.Arrays;
+
+/**
+ * Times each phase of the frame and counts how often expensive operations happen in it, keeping the last
+ * {@link #FRAMES_KEPT} frames in ring buffers so that averages, the 99th percentile and the worst frame can be shown
+ * while the game is running. A spike can then be traced to the phase it happened in, not just seen as a drop in FPS.
+ * <p>
+ * Everything is static so that code deep inside the physics can count without being handed a profiler. It is disabled
+ * until {@link #setEnabled(boolean)} is called, in which case every method returns straight away - the
+ * {@link HeadlessSimulation} and tests never pay for it. Only the render thread may use it.
+ */
+public final class FrameProfiler {
+
+    public enum Phase {
+        /**
+         * The whole of GameScreen.render(), including everything below.
+         */
+        FRAME,
+        /**
+         * Debug keys, recording and replays.
+         */
+        INPUT,
+        /**
+         * Every Player.update() in the frame, including its sensors.
+         */
+        PLAYER,
+        /**
+         * The player's SensorBatch.process() - part of PLAYER.
+         */
+        SENSORS,
+        ENTITIES,
+        /**
+         * Chunk textures or collision views, including loading chunk textures.
+         */
+        CHUNKS,
+        /**
+         * The background, player and debug sprites being added to the batch.
+         */
+        SPRITES,
+        /**
+         * The batch's final draw call at the end of the frame.
+         */
+        FLUSH,
+        /**
+         * The profiler's own overlay, drawn after everything else has been measured - see {@link FrameProfilerHud}.
+         */
+        HUD
+    }
+
+    public enum Counter {
+        PHYSICS_STEPS,
+        SENSOR_PROBES,
+        /**
+         * Calls to {@link TileMap#getTile(int, int, int, int)}.
+         */
+        TILE_LOOKUPS,
+        CHUNK_SECTIONS_DRAWN,
+        /**
+         * Sections of the {@link ChunkTextureCache} which had to be cached again before they were drawn.
+         */
+        CHUNK_SECTIONS_CACHED,
+        // The rest are added by RenderStats at the end of the frame
+        DRAW_CALLS,
+        TEXTURE_BINDS,
+        SHADER_SWITCHES,
+        VERTICES,
+        BATCH_FLUSHES
+    }
+
+    public static final int FRAMES_KEPT = 240;
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private static boolean enabled;
+    // Ring buffers, indexed by [phase or counter][frame % FRAMES_KEPT]
+    private static final long[][] phaseNanos = new long[PHASES.length][FRAMES_KEPT];
+    private static final int[][] counts = new int[COUNTERS.length][FRAMES_KEPT];
+    // When each phase began, if it is running right now
+    private static final long[] phaseStarts = new long[PHASES.length];
+    private static int frame;
+    private static int framesRecorded;
+    // Sorted copy of one phase's buffer for percentiles
+    private static final long[] sortedNanos = new long[FRAMES_KEPT];
+
+    private FrameProfiler() {
+    }
+
+    public static void setEnabled(final boolean enabled) {
+        FrameProfiler.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Clears the current frame's slot and starts timing {@link Phase#FRAME}.
+     */
+    public static void beginFrame() {
+        if (!enabled) return;
+        final int slot = frame % FRAMES_KEPT;
+        for (final long[] nanos : phaseNanos) nanos[slot] = 0;
+        for (final int[] count : counts) count[slot] = 0;
+        begin(Phase.FRAME);
+    }
+
+    public static void endFrame() {
+        if (!enabled) return;
+        end(Phase.FRAME);
+        frame++;
+        framesRecorded = Math.min(framesRecorded + 1, FRAMES_KEPT);
+    }
+
+    /**
+     * Starts timing a phase. A phase can be timed several times in one frame (e.g. once per physics step), and the
+     * times are added together.
+     */
+    public static void begin(final Phase phase) {
+        if (!enabled) return;
+        phaseStarts[phase.ordinal()] = TimeUtils.nanoTime();
+    }
+
+    public static void end(final Phase phase) {
+        if (!enabled) return;
+        phaseNanos[phase.ordinal()][frame % FRAMES_KEPT] += TimeUtils.nanoTime() - phaseStarts[phase.ordinal()];
+    }
+
+    public static void count(final Counter counter) {
+        if (!enabled) return;
+        counts[counter.ordinal()][frame % FRAMES_KEPT]++;
+    }
+
+    public static void count(final Counter counter, final int amount) {
+        if (!enabled) return;
+        counts[counter.ordinal()][frame % FRAMES_KEPT] += amount;
+    }
+
+    /**
+     * @return how many finished frames the statistics are taken from, up to FRAMES_KEPT
+     */
+    public static int getFramesRecorded() {
+        return framesRecorded;
+    }
+
+    /**
+     * @return how many frames ago the slowest recorded frame was, counting the last finished frame as 0
+     */
+    public static int getWorstFrameAge() {
+        final long[] frameNanos = phaseNanos[Phase.FRAME.ordinal()];
+        int worstAge = 0;
+        long worst = -1;
+        for (int age = 0; age < framesRecorded; age++) {
+            final long nanos = frameNanos[getSlot(age)];
+            if (nanos > worst) {
+                worst = nanos;
+                worstAge = age;
+            }
+        }
+        return worstAge;
+    }
+
+    private static int getSlot(final int age) {
+        return Math.floorMod(frame - 1 - age, FRAMES_KEPT);
+    }
+
+    /**
+     * @param age how many frames ago, where the last finished frame is 0
+     */
+    public static float getMillis(final Phase phase, final int age) {
+        return phaseNanos[phase.ordinal()][getSlot(age)] / 1_000_000F;
+    }
+
+    public static float getAverageMillis(final Phase phase) {
+        if (framesRecorded == 0) return 0;
+        long total = 0;
+        for (int age = 0; age < framesRecorded; age++) total += phaseNanos[phase.ordinal()][getSlot(age)];
+        return total / (framesRecorded * 1_000_000F);
+    }
+
+    /**
+     * @param percentile between 0 and 1, e.g. 0.99 for the time 99% of frames were faster than
+     */
+    public static float getPercentileMillis(final Phase phase, final float percentile) {
+        if (framesRecorded == 0) return 0;
+        for (int age = 0; age < framesRecorded; age++) sortedNanos[age] = phaseNanos[phase.ordinal()][getSlot(age)];
+        Arrays.sort(sortedNanos, 0, framesRecorded);
+        final int index = Math.min(framesRecorded - 1, (int) Math.ceil(percentile * framesRecorded) - 1);
+        return sortedNanos[Math.max(0, index)] / 1_000_000F;
+    }
+
+    public static float getWorstMillis(final Phase phase) {
+        long worst = 0;
+        for (int age = 0; age < framesRecorded; age++) worst = Math.max(worst, phaseNanos[phase.ordinal()][getSlot(age)]);
+        return worst / 1_000_000F;
+    }
+
+    /**
+     * @param age how many frames ago, where the last finished frame is 0
+     */
+    public static int getCount(final Counter counter, final int age) {
+        return counts[counter.ordinal()][getSlot(age)];
+    }
+
+    public static float getAverageCount(final Counter counter) {
+        if (framesRecorded == 0) return 0;
+        long total = 0;
+        for (int age = 0; age < framesRecorded; age++) total += counts[counter.ordinal()][getSlot(age)];
+        return (float) total / framesRecorded;
+    }
+
+    public static int getMaxCount(final Counter counter) {
+        int max = 0;
+        for (int age = 0; age < framesRecorded; age++) max = Math.max(max, counts[counter.ordinal()][getSlot(age)]);
+        return max;
+    }
+
+    /**
+     * Forgets every recorded frame.
+     */
+    public static void reset() {
+        for (final long[] nanos : phaseNanos) Arrays.fill(nanos, 0);
+        for (final int[] count : counts) Arrays.fill(count, 0);
+        frame = 0;
+        framesRecorded = 0;
+    }
+}
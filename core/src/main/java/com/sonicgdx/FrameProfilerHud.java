@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.util.Locale;
+
+/**
+ * Shows the {@link FrameProfiler}'s statistics in the top left corner of the screen: the average, 99th percentile and
+ * worst time of every phase, the same phases in the worst frame so a spike can be traced to one of them, and the
+ * average and highest value of every counter.
+ * <p>
+ * The text is only rebuilt a couple of times a second, so that sorting the buffers and building strings doesn't show
+ * up in the frames being measured. It is drawn in a batch pass of its own after {@link RenderStats#endFrame()}, so
+ * its draw call isn't included in the counters it shows.
+ */
+public class FrameProfilerHud implements Disposable {
+
+    private static final float REFRESH_INTERVAL = 0.5F;
+    // Worked out once instead of on every refresh, since values() copies its array and toLowerCase() makes a new String
+    private static final FrameProfiler.Phase[] PHASES = FrameProfiler.Phase.values();
+    private static final FrameProfiler.Counter[] COUNTERS = FrameProfiler.Counter.values();
+    private static final String[] PHASE_NAMES = lowerCaseNames(PHASES);
+    private static final String[] COUNTER_NAMES = lowerCaseNames(COUNTERS);
+
+    private final BitmapFont font = new BitmapFont();
+    private final Matrix4 projection = new Matrix4();
+    private final StringBuilder text = new StringBuilder();
+    private float timeSinceRefresh = REFRESH_INTERVAL;
+
+    public FrameProfilerHud() {
+        font.setColor(Color.WHITE);
+    }
+
+    private static String[] lowerCaseNames(final Enum<?>[] values) {
+        final String[] names = new String[values.length];
+        for (int i = 0; i < values.length; i++) names[i] = values[i].name().toLowerCase(Locale.ROOT);
+        return names;
+    }
+
+    public void resize(final int width, final int height) {
+        projection.setToOrtho2D(0, 0, width, height);
+    }
+
+    /**
+     * Draws the statistics in screen co-ordinates, with its own begin() and end() of the batch. Must be called after
+     * the batch has ended for the frame, and leaves it using the screen's projection.
+     * @param delta the time since the last frame, to know when to rebuild the text
+     */
+    public void draw(final Batch batch, final float screenHeight, final float delta) {
+        timeSinceRefresh += delta;
+        if (timeSinceRefresh >= REFRESH_INTERVAL) {
+            timeSinceRefresh = 0;
+            rebuildText();
+        }
+
+        //Setting the projection outside of begin() and end() doesn't make the batch flush
+        batch.setProjectionMatrix(projection);
+        batch.begin();
+        font.draw(batch, text, 8, screenHeight - 8);
+        batch.end();
+    }
+
+    private void rebuildText() {
+        text.setLength(0);
+        final int worstAge = FrameProfiler.getWorstFrameAge();
+        text.append("last ").append(FrameProfiler.getFramesRecorded()).append(" frames (ms): avg / p99 / max / in worst frame\n");
+        for (final FrameProfiler.Phase phase : PHASES) {
+            text.append(PHASE_NAMES[phase.ordinal()]).append(": ");
+            appendTwoDecimals(FrameProfiler.getAverageMillis(phase)).append(" / ");
+            appendTwoDecimals(FrameProfiler.getPercentileMillis(phase, 0.99F)).append(" / ");
+            appendTwoDecimals(FrameProfiler.getWorstMillis(phase)).append(" / ");
+            appendTwoDecimals(FrameProfiler.getMillis(phase, worstAge)).append('\n');
+        }
+        text.append("per frame: avg / max / in worst frame\n");
+        for (final FrameProfiler.Counter counter : COUNTERS) {
+            text.append(COUNTER_NAMES[counter.ordinal()]).append(": ");
+            appendTwoDecimals(FrameProfiler.getAverageCount(counter)).append(" / ");
+            text.append(FrameProfiler.getMaxCount(counter)).append(" / ");
+            text.append(FrameProfiler.getCount(counter, worstAge)).append('\n');
+        }
+    }
+
+    /**
+     * Appends a value with two decimal places, without String.format which the web backends don't have.
+     */
+    private StringBuilder appendTwoDecimals(final float value) {
+        final int hundredths = Math.round(value * 100);
+        text.append(hundredths / 100).append('.');
+        final int fraction = hundredths % 100;
+        if (fraction < 10) text.append('0');
+        return text.append(fraction);
+    }
+
+    @Override
+    public void dispose() {
+        font.dispose();
+    }
+}
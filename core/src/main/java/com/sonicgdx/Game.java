@@ -19,13 +19,42 @@ package com.sonicgdx;
 import com.badlogic.gdx.Application;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 
+import java.nio.ByteBuffer;
+
 
 public class Game extends com.badlogic.gdx.Game {
     public SpriteBatch batch;
+    public AssetManager assetManager;
+    public RenderStats renderStats;
 	public Screen gameScreen;
 	//private Screen menuScreen;
+    public final LevelLoader levelLoader;
+    public final ParallelRunner parallelRunner;
+    /**
+     * Whether {@link RenderStats} should log its counts, e.g. for benchmark runs. Must be set before create() is called.
+     */
+    public boolean logRenderStats = false;
+    /**
+     * Whether the player uses fixed-point physics - see {@link Player#setFixedPoint(boolean)}. On by default for the
+     * web backends, where it is faster.
+     */
+    public boolean fixedPointPhysics = false;
+
+    public Game() {
+        this(file -> ByteBuffer.wrap(file.readBytes()), ParallelRunner.SEQUENTIAL);
+    }
+
+    /**
+     * @param levelLoader how level files are read on this platform, e.g. memory-mapped on desktop
+     * @param parallelRunner how entity updates are spread across threads on this platform, if at all
+     */
+    public Game(final LevelLoader levelLoader, final ParallelRunner parallelRunner) {
+        this.levelLoader = levelLoader;
+        this.parallelRunner = parallelRunner;
+    }
 
     /**
      * Implements method from the ApplicationListener interface.
@@ -36,6 +65,10 @@ public class Game extends com.badlogic.gdx.Game {
 
         batch = new SpriteBatch(); // sprite batch provides multiple sprites to draw to the GPU to improve OpenGl performance https://gamedev.stackexchange.com/questions/32910/what-is-the-technical-defInition-of-sprite-batching
         //This is shared between screens to reduce memory usage and OpenGL calls
+        assetManager = new AssetManager();
+        //Created early since it wraps Gdx.gl
+        renderStats = new RenderStats(batch);
+        renderStats.setLogging(logRenderStats);
 
         gameScreen = new GameScreen(this);
         this.setScreen(gameScreen);
@@ -55,6 +88,8 @@ public class Game extends com.badlogic.gdx.Game {
     public void dispose() {
 		batch.dispose();
         gameScreen.dispose();
+        assetManager.dispose();
+        renderStats.dispose();
         //menuScreen.dispose();
 
         super.dispose();
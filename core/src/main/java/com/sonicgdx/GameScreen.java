@@ -20,6 +20,7 @@ import com.badlogic.gdx.Input;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.audio.Music;
+import com.badlogic.gdx.controllers.Controllers;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.Texture;
@@ -35,17 +36,51 @@ import java.util.Optional;
 public class GameScreen implements Screen {
 
     private final Game game;
-    //private final FPSLogger frameLog;
+    private final FrameProfilerHud profilerHud;
+    private boolean showProfiler = false;
     private final OrthographicCamera camera; private final Vector2 cameraOffset = Vector2.Zero; private final ExtendViewport gameViewport;
     private final Player player;
+    private final DevicePlayerInput playerInput;
+    // Rings, badniks and other objects, updated with the player every physics step
+    private final EntityStore entities = new EntityStore();
 
     public static TextureAtlas spriteAtlas;
+    private final ChunkTextureResidency chunkTextureResidency;
     private final Texture whiteSquare, blackSquare;
+    private final CollisionOverlay collisionOverlay;
+    private final ChunkTextureCache chunkTextureCache;
     private final Texture backgroundTexture;
     private final Color backgroundTint;
 
     private ChunkRenderMode chunkRenderMode = ChunkRenderMode.CHUNK_TEXTURE;
 
+    /**
+     * How many chunks outside the camera's view are still drawn on every side, so that anything overlapping the
+     * edge of its chunk isn't cut off.
+     */
+    private int chunkCullingMargin = 1;
+    // The range of chunk indices (inclusive) that can currently be seen by the camera - see calculateVisibleChunks()
+    private int firstVisibleChunkX, lastVisibleChunkX, firstVisibleChunkY, lastVisibleChunkY;
+    /**
+     * The most memory the loaded pages of the chunk atlas should take - 16 pages of 1024x1024.
+     */
+    private static final long MAX_CHUNK_TEXTURE_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The longest time a single frame can add to physicsTimeAccumulator, in seconds.
+     */
+    private static final float MAX_FRAME_TIME = 0.25F;
+    // See setPhysicsStepsPerSecond()
+    private int physicsStepsPerSecond = 60;
+    private float physicsTimeStep = 1F / physicsStepsPerSecond;
+    // Time which has passed but hasn't been simulated yet, always less than physicsTimeStep after render()
+    private float physicsTimeAccumulator = 0;
+
+    // Only one of these is used at a time, and both are null most of the time - see startRecording() and startReplay()
+    private InputRecorder inputRecorder;
+    private InputReplay inputReplay;
+    private static final String RECORDING_FILE = "recording.sgrp";
+
     private final Music backgroundMusic;
 
     /**
@@ -75,15 +110,27 @@ public class GameScreen implements Screen {
         camera.setToOrtho(false,1280,720); // Even if the device has a scaled resolution, the in game view will still be 1280x720
 
         spriteAtlas = new TextureAtlas(Gdx.files.internal("sprites/SonicGDX.atlas"));
+        TileMap.load(new Level(game.levelLoader.load(Gdx.files.internal("levels/test.sglv"))));
+        //Packed from chunk-art/AIZ2 by the packChunkTextures Gradle task. Its pages are only loaded near the camera.
+        chunkTextureResidency = new ChunkTextureResidency(game.assetManager, Gdx.files.internal("generated/chunks.atlas"), MAX_CHUNK_TEXTURE_BYTES);
 
         //TODO AssetManager
         whiteSquare = new Texture(Gdx.files.internal("sprites/1x1-ffffffff.png")); blackSquare = new Texture(Gdx.files.internal("sprites/1x1-000000ff.png"));
-        player = new Player(9,19);
+        playerInput = new DevicePlayerInput();
+        entities.setParallelRunner(game.parallelRunner);
+        player = new Player(9,19,playerInput);
+        player.setFixedPoint(game.fixedPointPhysics);
+        player.setSpriteRegion(getTextureRegion("sonic-idle", 0));
+        player.setJumpSound(Gdx.audio.newSound(Gdx.files.internal("sounds/jump.wav")));
+        collisionOverlay = new CollisionOverlay();
+        chunkTextureCache = new ChunkTextureCache(chunkTextureResidency);
 
         //TODO adjust view when looking up or down (pressing up or down arrows)
         cameraOffset.set(0, camera.position.y - player.getYPosition());
 
-        //frameLog = new FPSLogger();
+        //Always recording, so that there is already a history when the overlay is shown
+        FrameProfiler.setEnabled(true);
+        profilerHud = new FrameProfilerHud();
         backgroundTexture = new Texture(Gdx.files.internal("sprites/aiz_background.jpg"));
 
         //randomly picks a color to tint the background with (to make it less bland over multiple playthroughs)
@@ -104,12 +151,17 @@ public class GameScreen implements Screen {
 
     @Override
     public void render(final float delta) {
-        //UNCOMMENT for debugging purposes
-        //frameLog.log();
-        //delta = 0.016666668f;
-
+        FrameProfiler.beginFrame();
+        game.renderStats.beginFrame();
         ScreenUtils.clear(Color.DARK_GRAY);
 
+        FrameProfiler.begin(FrameProfiler.Phase.INPUT);
+        //Shows frame times and counters for each part of the frame
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F3)) {
+            showProfiler = !showProfiler;
+            game.renderStats.setOverlayVisible(showProfiler);
+        }
+
         //Toggle between one of three draw modes: texture drawing, height array drawing and width array drawing
         if (Gdx.input.isKeyJustPressed(Input.Keys.Y)) {
             chunkRenderMode = ChunkRenderMode.CHUNK_TEXTURE;
@@ -121,12 +173,49 @@ public class GameScreen implements Screen {
             chunkRenderMode = ChunkRenderMode.TILE_HEIGHT_ARRAY;
         }
 
-        player.update(delta);
+        //Records a session to a local file, and replays the last one
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F5)) {
+            if (inputRecorder == null) startRecording();
+            else Gdx.files.local(RECORDING_FILE).writeBytes(stopRecording(), false);
+        }
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F6) && Gdx.files.local(RECORDING_FILE).exists()) {
+            startReplay(new InputReplay(Gdx.files.local(RECORDING_FILE).readBytes()));
+        }
+
+        //A replay uses the recorded frame lengths, so that the same number of steps are taken in each frame
+        float frameDelta = delta;
+        if (inputReplay != null) {
+            if (inputReplay.nextFrame()) frameDelta = inputReplay.getFrameDelta();
+            else stopReplay();
+        }
+        if (inputRecorder != null) inputRecorder.beginFrame(frameDelta);
+        FrameProfiler.end(FrameProfiler.Phase.INPUT);
+
+        //Runs as many fixed length physics steps as fit in the time that has passed, and carries the rest over.
+        //Long frames (e.g. after the window was dragged) are capped so that the game doesn't keep falling behind.
+        physicsTimeAccumulator += Math.min(frameDelta, MAX_FRAME_TIME);
+        while (physicsTimeAccumulator >= physicsTimeStep) {
+            FrameProfiler.count(FrameProfiler.Counter.PHYSICS_STEPS);
+            FrameProfiler.begin(FrameProfiler.Phase.PLAYER);
+            player.savePreviousPosition();
+            player.update(physicsTimeStep);
+            FrameProfiler.end(FrameProfiler.Phase.PLAYER);
+            FrameProfiler.begin(FrameProfiler.Phase.ENTITIES);
+            entities.update(physicsTimeStep);
+            FrameProfiler.end(FrameProfiler.Phase.ENTITIES);
+            if (inputRecorder != null) inputRecorder.recordStep(player);
+            if (inputReplay != null) inputReplay.verifyStep(player);
+            physicsTimeAccumulator -= physicsTimeStep;
+        }
+        if (inputRecorder != null) inputRecorder.endFrame();
+        final float alpha = physicsTimeAccumulator / physicsTimeStep;
+        player.updateSprite(alpha);
 
-        //Updates the camera position to where the player is but keeps the offset
-        camera.position.set(player.getXPosition() + cameraOffset.x,player.getYPosition() + cameraOffset.y,camera.position.z); camera.update();
+        //Updates the camera position to where the player is drawn but keeps the offset
+        camera.position.set(player.getInterpolatedXPosition(alpha) + cameraOffset.x,player.getInterpolatedYPosition(alpha) + cameraOffset.y,camera.position.z); camera.update();
 
         //viewport.apply();
+        FrameProfiler.begin(FrameProfiler.Phase.SPRITES);
         game.batch.setProjectionMatrix(camera.combined);
         game.batch.begin();
         /*Disabling blending gives a performance boost
@@ -138,47 +227,168 @@ public class GameScreen implements Screen {
         game.batch.setColor(Color.WHITE);
 
         game.batch.enableBlending();
-        //TODO render gradually as player progresses
+        FrameProfiler.end(FrameProfiler.Phase.SPRITES);
+
+        FrameProfiler.begin(FrameProfiler.Phase.CHUNKS);
+        calculateVisibleChunks();
+        //Kept up to date in every mode, so that switching back to textures doesn't have to wait for them
+        chunkTextureResidency.update(firstVisibleChunkX, lastVisibleChunkX, firstVisibleChunkY, lastVisibleChunkY);
+
+        if (chunkRenderMode == ChunkRenderMode.CHUNK_TEXTURE) {
+            //The cached chunk textures are drawn by their own SpriteCache, so the batch has to finish the background first
+            game.batch.end();
+            chunkTextureCache.draw(camera.combined, firstVisibleChunkX, lastVisibleChunkX, firstVisibleChunkY, lastVisibleChunkY);
+            game.batch.begin();
+        }
 
-        //Iterates through every chunk on the x-axis
-        for (int chunkX = 0; chunkX < TileMap.map.length; chunkX++)
-        {
-            //Iterates through every chunk on the y-axis
-            for (int chunkY = 0; chunkY < TileMap.map[chunkX].length; chunkY++)
+        //The shader draws each chunk's collision in one quad - only falls back to drawing every column if it is unsupported
+        final boolean useCollisionOverlay = chunkRenderMode != ChunkRenderMode.CHUNK_TEXTURE && collisionOverlay.isCompiled();
+        if (useCollisionOverlay) collisionOverlay.begin(game.batch, chunkRenderMode == ChunkRenderMode.TILE_WIDTH_ARRAY);
+
+        //The collision views still go chunk by chunk through the batch
+        if (chunkRenderMode != ChunkRenderMode.CHUNK_TEXTURE) {
+            //Iterates through every visible chunk on the x-axis
+            for (int chunkX = firstVisibleChunkX; chunkX <= lastVisibleChunkX; chunkX++)
             {
-                //Draws using the respective mode's method
-                switch(chunkRenderMode) {
-                    case CHUNK_TEXTURE:
-                        drawChunkTexture(chunkX, chunkY);
-                        break;
-                    case TILE_HEIGHT_ARRAY:
-                        drawChunkHeightArray(chunkX, chunkY);
-                        break;
-                    case TILE_WIDTH_ARRAY:
-                        drawChunkWidthArray(chunkX, chunkY);
-                        break;
-                    default:
-                        throw new AssertionError("No case for chunk rendering mode " + chunkRenderMode.name());
+                //Columns of the map can have different lengths
+                final int lastChunkY = Math.min(lastVisibleChunkY, TileMap.getColumnHeight(chunkX) - 1);
+
+                //Iterates through every visible chunk on the y-axis
+                for (int chunkY = firstVisibleChunkY; chunkY <= lastChunkY; chunkY++)
+                {
+                    //Draws using the respective mode's method
+                    switch(chunkRenderMode) {
+                        case TILE_HEIGHT_ARRAY:
+                            if (useCollisionOverlay) collisionOverlay.drawChunk(game.batch, chunkX, chunkY);
+                            else drawChunkHeightArray(chunkX, chunkY);
+                            break;
+                        case TILE_WIDTH_ARRAY:
+                            if (useCollisionOverlay) collisionOverlay.drawChunk(game.batch, chunkX, chunkY);
+                            else drawChunkWidthArray(chunkX, chunkY);
+                            break;
+                        default:
+                            throw new AssertionError("No case for chunk rendering mode " + chunkRenderMode.name());
+                    }
                 }
             }
         }
+        if (useCollisionOverlay) collisionOverlay.end(game.batch);
+        FrameProfiler.end(FrameProfiler.Phase.CHUNKS);
+
+        FrameProfiler.begin(FrameProfiler.Phase.SPRITES);
         player.sprite.draw(game.batch);
-        // DEBUG - draw 1x1 white squares at the player's sensor locations
-        game.batch.draw(whiteSquare,player.leftEdgeX,player.bottomEdgeY);
-        game.batch.draw(whiteSquare,player.rightEdgeX,player.bottomEdgeY);
+        // DEBUG - draw 1x1 white squares at the player's sensor locations, moved to where the sprite is drawn
+        final float drawnXPosition = player.getInterpolatedXPosition(alpha), drawnYPosition = player.getInterpolatedYPosition(alpha);
+        final float drawnOffsetX = drawnXPosition - player.getXPosition(), drawnOffsetY = drawnYPosition - player.getYPosition();
+        game.batch.draw(whiteSquare,player.leftEdgeX + drawnOffsetX,player.bottomEdgeY + drawnOffsetY);
+        game.batch.draw(whiteSquare,player.rightEdgeX + drawnOffsetX,player.bottomEdgeY + drawnOffsetY);
+
+        game.batch.draw(whiteSquare,player.leftEdgeX + drawnOffsetX,drawnYPosition);
+        game.batch.draw(whiteSquare,player.rightEdgeX + drawnOffsetX,drawnYPosition);
 
-        game.batch.draw(whiteSquare,player.leftEdgeX,player.getYPosition());
-        game.batch.draw(whiteSquare,player.rightEdgeX,player.getYPosition());
+        game.batch.draw(whiteSquare,player.leftEdgeX + drawnOffsetX,player.topEdgeY + drawnOffsetY);
+        game.batch.draw(whiteSquare,player.rightEdgeX + drawnOffsetX,player.topEdgeY + drawnOffsetY);
 
-        game.batch.draw(whiteSquare,player.leftEdgeX,player.topEdgeY);
-        game.batch.draw(whiteSquare,player.rightEdgeX,player.topEdgeY);
+        game.batch.draw(whiteSquare,drawnXPosition,drawnYPosition);
+        FrameProfiler.end(FrameProfiler.Phase.SPRITES);
 
-        game.batch.draw(whiteSquare,player.getXPosition(),player.getYPosition());
+        FrameProfiler.begin(FrameProfiler.Phase.FLUSH);
         game.batch.end();
+        FrameProfiler.end(FrameProfiler.Phase.FLUSH);
+        game.renderStats.endFrame();
+
+        if (showProfiler) {
+            FrameProfiler.begin(FrameProfiler.Phase.HUD);
+            profilerHud.draw(game.batch, Gdx.graphics.getHeight(), delta);
+            FrameProfiler.end(FrameProfiler.Phase.HUD);
+        }
+        FrameProfiler.endFrame();
+    }
+
+    /**
+     * Finds the range of chunks which intersect the camera's view, extended by chunkCullingMargin chunks on each side
+     * and clamped to the size of the map. If none are visible, the first index will be greater than the last.
+     */
+    private void calculateVisibleChunks() {
+        final float halfViewWidth = (camera.viewportWidth * camera.zoom) / 2;
+        final float halfViewHeight = (camera.viewportHeight * camera.zoom) / 2;
+
+        firstVisibleChunkX = Math.max(0, (int) Math.floor((camera.position.x - halfViewWidth) / TileMap.CHUNK_LENGTH) - chunkCullingMargin);
+        lastVisibleChunkX = Math.min(TileMap.getWidthInChunks() - 1, (int) Math.floor((camera.position.x + halfViewWidth) / TileMap.CHUNK_LENGTH) + chunkCullingMargin);
+        firstVisibleChunkY = Math.max(0, (int) Math.floor((camera.position.y - halfViewHeight) / TileMap.CHUNK_LENGTH) - chunkCullingMargin);
+        // Clamped to each column's length when it is drawn instead, since they can be different
+        lastVisibleChunkY = (int) Math.floor((camera.position.y + halfViewHeight) / TileMap.CHUNK_LENGTH) + chunkCullingMargin;
+    }
+
+    /**
+     * Physics always runs at a fixed rate, independent of the frame rate. The original games ran at 60 steps per second.
+     * @param stepsPerSecond the number of physics steps in one second of game time
+     */
+    public void setPhysicsStepsPerSecond(final int stepsPerSecond) {
+        if (stepsPerSecond <= 0) throw new IllegalArgumentException("stepsPerSecond is " + stepsPerSecond + " but must be positive");
+        physicsStepsPerSecond = stepsPerSecond;
+        physicsTimeStep = 1F / stepsPerSecond;
+        physicsTimeAccumulator = 0;
+    }
+
+    /**
+     * Resets the player and starts recording every frame and the input of every step, until stopRecording().
+     */
+    public void startRecording() {
+        if (inputReplay != null) stopReplay();
+        player.reset();
+        physicsTimeAccumulator = 0;
+        inputRecorder = new InputRecorder(playerInput, physicsStepsPerSecond, player);
+        player.setInput(inputRecorder);
+        Gdx.app.log("GameScreen", "Started recording");
+    }
+
+    /**
+     * @return the recording, to be played back with {@link InputReplay}
+     */
+    public byte[] stopRecording() {
+        if (inputRecorder == null) throw new IllegalStateException("Not recording");
+        final byte[] recording = inputRecorder.toByteArray();
+        inputRecorder = null;
+        player.setInput(playerInput);
+        Gdx.app.log("GameScreen", "Stopped recording after " + recording.length + " bytes");
+        return recording;
+    }
+
+    /**
+     * Resets the player and plays a recording back in real time, taking over from the player's controls until it ends.
+     * Whether it diverged from the recording is logged at the end.
+     */
+    public void startReplay(final InputReplay replay) {
+        if (inputRecorder != null) stopRecording();
+        if (replay.getStepsPerSecond() != physicsStepsPerSecond) throw new IllegalArgumentException("The recording was made at " + replay.getStepsPerSecond() + " steps per second instead of " + physicsStepsPerSecond);
+        player.reset();
+        if (!replay.matchesInitialState(player)) throw new IllegalArgumentException("The recording doesn't start from the player's reset state");
+        physicsTimeAccumulator = 0;
+        inputReplay = replay;
+        player.setInput(replay);
+    }
+
+    private void stopReplay() {
+        if (inputReplay.getFirstDivergentStep() == -1) Gdx.app.log("GameScreen", "Replayed " + inputReplay.getStepCount() + " steps without diverging");
+        else Gdx.app.error("GameScreen", "Replay diverged from the recording at step " + inputReplay.getFirstDivergentStep());
+        inputReplay = null;
+        //Anything pressed during the replay shouldn't suddenly take effect now
+        playerInput.consumePressedActions();
+        player.setInput(playerInput);
     }
 
     /**
-     * Draws each Chunk's assigned texture at its corresponding location
+     * @param chunkCullingMargin the number of chunks outside the camera's view to draw on every side
+     */
+    public void setChunkCullingMargin(final int chunkCullingMargin) {
+        if (chunkCullingMargin < 0) throw new IllegalArgumentException("chunkCullingMargin is " + chunkCullingMargin + " but cannot be negative");
+        this.chunkCullingMargin = chunkCullingMargin;
+    }
+
+    /**
+     * Draws each Chunk's assigned texture at its corresponding location. render() uses the {@link ChunkTextureCache}
+     * instead, but this can still be used to draw a single chunk with the batch.
      * @param chunkX the chunk number on the x-axis - not the same as its co-ordinate
      * @param chunkY the chunk number on the y-axis - not the same as its co-ordinate
      */
@@ -186,11 +396,19 @@ public class GameScreen implements Screen {
         final Chunk chunk = TileMap.getChunk(chunkX, chunkY);
 
         //If there is a chunk at this location and it has a texture, draw it.
-        if (!chunk.isEmpty()) {
-            final Optional<Texture> texture = chunk.getTexture();
-
+        final Optional<TextureRegion> texture = chunk.getTexture();
+        if (texture.isPresent()) {
+            game.batch.draw(
+                texture.get(),
+                (chunkX * TileMap.CHUNK_LENGTH),
+                (chunkY * TileMap.CHUNK_LENGTH),
+                TileMap.CHUNK_LENGTH,
+                TileMap.CHUNK_LENGTH);
+        }
+        //Its page of the chunk atlas is still loading, so a plain square stands in for it
+        else if (chunk.getTextureName() != null) {
             game.batch.draw(
-                texture.orElseThrow(),
+                blackSquare,
                 (chunkX * TileMap.CHUNK_LENGTH),
                 (chunkY * TileMap.CHUNK_LENGTH),
                 TileMap.CHUNK_LENGTH,
@@ -200,6 +418,7 @@ public class GameScreen implements Screen {
 
     /**
      * Draws each Tile in a Chunk's height arrays  using a gradient - for debugging purposes only
+     * This issues a draw call for every column of every tile, so {@link CollisionOverlay} is used instead where shaders are supported.
      * Further iteration is done outside the procedure for every chunk in the TileMap. This is so that this method
      * can potentially be reused in other circumstances (such as for rendering only one chunk in the creator UI)
      * @param chunkX the chunk number on the x-axis - not the same as its co-ordinate
@@ -338,23 +557,30 @@ public class GameScreen implements Screen {
 
         backgroundTexture.dispose();
         spriteAtlas.dispose();
+        chunkTextureResidency.dispose();
 
         player.dispose();
 
         whiteSquare.dispose();
         blackSquare.dispose();
 
+        collisionOverlay.dispose();
+        chunkTextureCache.dispose();
+        profilerHud.dispose();
+
 
     }
     @Override
     public void resize(final int width, final int height) {
         gameViewport.update(width,height);
+        profilerHud.resize(width, height);
     }
 
     @Override
     public void show() {
-        //TODO Auto-generated method stub
-
+        //Controls are collected as events arrive rather than polled every frame
+        Gdx.input.setInputProcessor(playerInput);
+        Controllers.addListener(playerInput);
     }
 
     @Override
@@ -371,8 +597,9 @@ public class GameScreen implements Screen {
 
     @Override
     public void hide() {
-        //TODO Auto-generated method stub
-
+        Gdx.input.setInputProcessor(null);
+        Controllers.removeListener(playerInput);
+        playerInput.reset();
     }
 
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.math.MathUtils;
+
+import static com.sonicgdx.TileMap.TILE_LENGTH;
+
+/**
+ * Walks entities back and forth along the floor at their x velocity, like a Motobug - they follow slopes, and turn
+ * around when the floor drops away or rises too steeply in front of them. The floor is found the same way as a
+ * {@link SensorBatch#FLOOR floor sensor}, from the bottom middle of each entity.
+ * <p>
+ * Only reads the {@link CollisionMap} within a chunk of each entity, which the store bakes before a parallel update, so
+ * partitions of the store can be walked at the same time.
+ */
+public class GroundWalkerSystem implements EntitySystem {
+
+    /**
+     * The furthest a walker moves up or down to stay on the floor in one step, the same as the player's positive limit.
+     */
+    private static final float MAX_STEP = 14;
+
+    @Override
+    public void update(final EntityStore store, final byte type, final int from, final int to, final float delta, final EntityEvents events) {
+        final CollisionMap collisionMap = TileMap.getCollisionMap();
+        final byte[] types = store.getTypes();
+        final boolean[] resting = store.getResting();
+        final float[] x = store.getXPositions(), y = store.getYPositions();
+        final float[] velocityX = store.getXVelocities(), heightRadii = store.getHeightRadii();
+
+        for (int entity = from; entity < to; entity++) {
+            if (types[entity] != type || resting[entity]) continue;
+
+            final float nextX = x[entity] + (velocityX[entity] * delta);
+            final float bottom = y[entity] - heightRadii[entity];
+            if (nextX < 0 || bottom < 0) {
+                velocityX[entity] = -velocityX[entity];
+                continue;
+            }
+
+            final int roundedX = MathUtils.round(nextX);
+            final int tileRow = MathUtils.round(bottom) / TILE_LENGTH;
+            final float distance = ((tileRow * TILE_LENGTH) + collisionMap.getFloorSurfaceOffset(roundedX, tileRow)) - bottom;
+
+            if (Math.abs(distance) > MAX_STEP) velocityX[entity] = -velocityX[entity];
+            else {
+                x[entity] = nextX;
+                y[entity] += distance;
+            }
+        }
+    }
+}
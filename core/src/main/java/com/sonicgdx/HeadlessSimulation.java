@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Runs the player's physics and collision against the {@link TileMap}, along with any entities added to
+ * {@link #getEntities()}, without a backend - nothing here touches Gdx
+ * globals, graphics or audio. Steps are taken back to back as fast as possible rather than in real time, for long
+ * automated playthroughs, tests and benchmarks.
+ */
+public class HeadlessSimulation {
+    private final Player player;
+    private final SimulatedPlayerInput input;
+    private final EntityStore entities = new EntityStore();
+    private final int stepsPerSecond;
+    private final float timeStep;
+    private long stepCount;
+
+    /**
+     * @param stepsPerSecond how many steps make up one second of game time, the same as in
+     *                       {@link GameScreen#setPhysicsStepsPerSecond(int)}
+     */
+    public HeadlessSimulation(final int stepsPerSecond) {
+        if (stepsPerSecond <= 0) throw new IllegalArgumentException("stepsPerSecond is " + stepsPerSecond + " but must be positive");
+        this.stepsPerSecond = stepsPerSecond;
+        timeStep = 1F / stepsPerSecond;
+        input = new SimulatedPlayerInput();
+        //Same size as the player in GameScreen
+        player = new Player(9, 19, input);
+    }
+
+    public HeadlessSimulation() {
+        this(60);
+    }
+
+    /**
+     * Advances the simulation by one physics step, using whatever input is currently set.
+     */
+    public void step() {
+        player.savePreviousPosition();
+        player.update(timeStep);
+        entities.update(timeStep);
+        stepCount++;
+    }
+
+    public void step(final int steps) {
+        for (int i = 0; i < steps; i++) step();
+    }
+
+    /**
+     * Resets the player and plays a whole recording back, with its steps back to back instead of at the speed
+     * they were recorded at. The input goes back to {@link #getInput()} afterwards.
+     * @return the index of the first step where the player's state didn't match the recording, or -1 if it always did
+     */
+    public long replay(final InputReplay replay) {
+        if (replay.getStepsPerSecond() != stepsPerSecond) throw new IllegalArgumentException("The recording was made at " + replay.getStepsPerSecond() + " steps per second instead of " + stepsPerSecond);
+
+        player.reset();
+        if (!replay.matchesInitialState(player)) throw new IllegalArgumentException("The recording doesn't start from the player's reset state");
+
+        player.setInput(replay);
+        while (replay.nextFrame()) {
+            while (replay.getStepsLeftInFrame() > 0) {
+                step();
+                replay.verifyStep(player);
+            }
+        }
+        player.setInput(input);
+        return replay.getFirstDivergentStep();
+    }
+
+    /**
+     * Writes the player, the entities and the step count into the buffer - see {@link StateHistory}.
+     */
+    public void writeState(final ByteBuffer buffer) {
+        StateHistory.write(buffer, stepCount, player, entities);
+    }
+
+    /**
+     * Goes back to a state written by {@link #writeState(ByteBuffer)}, including its step count.
+     */
+    public void readState(final ByteBuffer buffer) {
+        stepCount = StateHistory.read(buffer, player, entities);
+    }
+
+    /**
+     * Switches the player between float and fixed-point physics - see {@link Player#setFixedPoint(boolean)}.
+     * Recordings must be replayed with the same physics they were made with.
+     */
+    public void setFixedPointPhysics(final boolean fixedPointPhysics) {
+        player.setFixedPoint(fixedPointPhysics);
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * @return the rings, badniks and other objects updated along with the player - empty to begin with
+     */
+    public EntityStore getEntities() {
+        return entities;
+    }
+
+    public SimulatedPlayerInput getInput() {
+        return input;
+    }
+
+    /**
+     * @return the number of steps taken since the simulation was created
+     */
+    public long getStepCount() {
+        return stepCount;
+    }
+}
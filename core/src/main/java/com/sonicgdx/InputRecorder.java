@@ -0,0 +1,130 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Records the player's input and the length of every frame while passing the input through from another
+ * PlayerInput, so that a session can be played back exactly with {@link InputReplay}.
+ * <p>
+ * The recording is a compact binary stream:
+ * <pre>
+ * header: int MAGIC, byte VERSION, int stepsPerSecond, int state hash of the player before the first step
+ * frames: float delta, unsigned byte stepCount, then for each step:
+ *         byte heldActions, byte pressedActions, int state hash of the player after the step
+ * </pre>
+ * Each step only takes 6 bytes, so an hour at 60 steps per second is around 1.3MB.
+ */
+public class InputRecorder implements PlayerInput {
+
+    static final int MAGIC = 0x53475250; // "SGRP"
+    static final byte VERSION = 1;
+    /**
+     * The most steps that can be recorded in a single frame, since the count is stored as an unsigned byte.
+     */
+    static final int MAX_STEPS_PER_FRAME = 255;
+    // In bytes
+    static final int HEADER_SIZE = 13, FRAME_HEADER_SIZE = 5, STEP_SIZE = 6;
+
+    private final PlayerInput source;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream output = new DataOutputStream(bytes);
+
+    // The current frame is buffered until it ends, since its step count is written before its steps
+    private float frameDelta;
+    private int frameStepCount;
+    private final byte[] frameHeldActions = new byte[MAX_STEPS_PER_FRAME], framePressedActions = new byte[MAX_STEPS_PER_FRAME];
+    private final int[] frameStateHashes = new int[MAX_STEPS_PER_FRAME];
+    private int lastHeldActions, lastPressedActions;
+
+    /**
+     * @param source where the input actually comes from
+     * @param player the player the input is going to, in the state it will start from
+     */
+    public InputRecorder(final PlayerInput source, final int stepsPerSecond, final Player player) {
+        this.source = source;
+        try {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            output.writeInt(stepsPerSecond);
+            output.writeInt(player.getStateHash());
+        } catch (final IOException e) {
+            throw new GdxRuntimeException(e);
+        }
+    }
+
+    @Override
+    public int getHeldActions() {
+        lastHeldActions = source.getHeldActions();
+        return lastHeldActions;
+    }
+
+    @Override
+    public int consumePressedActions() {
+        lastPressedActions = source.consumePressedActions();
+        return lastPressedActions;
+    }
+
+    /**
+     * Must be called at the start of every frame, before any steps are taken.
+     * @param delta the frame's length in seconds, as passed to render()
+     */
+    public void beginFrame(final float delta) {
+        frameDelta = delta;
+        frameStepCount = 0;
+    }
+
+    /**
+     * Must be called after every physics step of the player.
+     */
+    public void recordStep(final Player player) {
+        if (frameStepCount == MAX_STEPS_PER_FRAME) throw new IllegalStateException("Cannot record more than " + MAX_STEPS_PER_FRAME + " steps in one frame");
+        frameHeldActions[frameStepCount] = (byte) lastHeldActions;
+        framePressedActions[frameStepCount] = (byte) lastPressedActions;
+        frameStateHashes[frameStepCount] = player.getStateHash();
+        frameStepCount++;
+    }
+
+    /**
+     * Must be called at the end of every frame, after all of its steps.
+     */
+    public void endFrame() {
+        try {
+            output.writeFloat(frameDelta);
+            output.writeByte(frameStepCount);
+            for (int step = 0; step < frameStepCount; step++) {
+                output.writeByte(frameHeldActions[step]);
+                output.writeByte(framePressedActions[step]);
+                output.writeInt(frameStateHashes[step]);
+            }
+        } catch (final IOException e) {
+            throw new GdxRuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the recording so far, which can be given to {@link InputReplay}
+     */
+    public byte[] toByteArray() {
+        return bytes.toByteArray();
+    }
+}
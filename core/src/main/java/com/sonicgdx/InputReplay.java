@@ -0,0 +1,142 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Plays back a recording made by {@link InputRecorder}, giving the player the recorded input step by step and
+ * checking its state against the recorded hashes to find where (and if) the replay has diverged from the original.
+ */
+public class InputReplay implements PlayerInput {
+
+    private final ByteBuffer data;
+    private final int stepsPerSecond;
+    private final int initialStateHash;
+
+    private float frameDelta;
+    private int stepsLeftInFrame;
+    // Where the current step's input and hash are in data
+    private int stepPosition;
+    private long stepCount;
+    private long firstDivergentStep = -1;
+
+    /**
+     * @param recording the bytes from {@link InputRecorder#toByteArray()}
+     */
+    public InputReplay(final byte[] recording) {
+        data = ByteBuffer.wrap(recording);
+        try {
+            if (data.getInt() != InputRecorder.MAGIC) throw new IllegalArgumentException("recording is not an input recording");
+            final byte version = data.get();
+            if (version != InputRecorder.VERSION) throw new IllegalArgumentException("recording is version " + version + " but only version " + InputRecorder.VERSION + " is supported");
+            stepsPerSecond = data.getInt();
+            initialStateHash = data.getInt();
+        } catch (final BufferUnderflowException e) {
+            throw new IllegalArgumentException("recording is too short to be an input recording");
+        }
+    }
+
+    /**
+     * Moves on to the next recorded frame. The previous frame's steps must all have been taken.
+     * @return false if there are no frames left
+     */
+    public boolean nextFrame() {
+        if (stepsLeftInFrame != 0) throw new IllegalStateException(stepsLeftInFrame + " steps of the previous frame haven't been taken");
+        if (!data.hasRemaining()) return false;
+        if (data.remaining() < InputRecorder.FRAME_HEADER_SIZE) throw new IllegalArgumentException("recording ends in the middle of a frame");
+        frameDelta = data.getFloat();
+        final int stepCount = data.get() & 0xFF;
+        if (data.remaining() < stepCount * InputRecorder.STEP_SIZE) throw new IllegalArgumentException("recording ends in the middle of a frame");
+
+        stepsLeftInFrame = stepCount;
+        stepPosition = data.position();
+        data.position(stepPosition + (stepCount * InputRecorder.STEP_SIZE));
+        return true;
+    }
+
+    /**
+     * @return the length of the current frame in seconds when it was recorded
+     */
+    public float getFrameDelta() {
+        return frameDelta;
+    }
+
+    /**
+     * @return the number of steps which were taken in the current frame that haven't been replayed yet
+     */
+    public int getStepsLeftInFrame() {
+        return stepsLeftInFrame;
+    }
+
+    @Override
+    public int getHeldActions() {
+        checkStepsLeft();
+        return data.get(stepPosition);
+    }
+
+    @Override
+    public int consumePressedActions() {
+        checkStepsLeft();
+        return data.get(stepPosition + 1);
+    }
+
+    /**
+     * Must be called after every physics step of the player. Compares the player's state to the recording, then
+     * moves on to the next step's input.
+     * @return false if the player's state is different to when the step was recorded
+     */
+    public boolean verifyStep(final Player player) {
+        checkStepsLeft();
+        final boolean matches = player.getStateHash() == data.getInt(stepPosition + 2);
+        if (!matches && firstDivergentStep == -1) firstDivergentStep = stepCount;
+        stepPosition += InputRecorder.STEP_SIZE;
+        stepsLeftInFrame--;
+        stepCount++;
+        return matches;
+    }
+
+    /**
+     * @return true if the player's state matches the one the recording started from
+     */
+    public boolean matchesInitialState(final Player player) {
+        return player.getStateHash() == initialStateHash;
+    }
+
+    private void checkStepsLeft() {
+        if (stepsLeftInFrame == 0) throw new IllegalStateException("No steps left in the current frame");
+    }
+
+    public int getStepsPerSecond() {
+        return stepsPerSecond;
+    }
+
+    /**
+     * @return the number of steps replayed so far
+     */
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * @return the index of the first step where the player's state didn't match the recording, or -1 if it always has.
+     */
+    public long getFirstDivergentStep() {
+        return firstDivergentStep;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.sonicgdx.TileMap.TILES_PER_CHUNK;
+import static com.sonicgdx.TileMap.TILE_LENGTH;
+
+/**
+ * A level read from the binary level format, written by {@link LevelWriter}. All values are big-endian.
+ * <pre>
+ * header:            int MAGIC, short VERSION, byte TILES_PER_CHUNK, byte TILE_LENGTH,
+ *                    int shapeCount, int chunkDefinitionCount, int widthInChunks, int maxColumnHeight, int textureNameCount
+ * shapes:            shapeCount * (byte[TILE_LENGTH] heights, byte[TILE_LENGTH] widths, float angle, byte solidity)
+ * chunk definitions: chunkDefinitionCount * (short textureNameIndex, short[TILES_PER_CHUNK * TILES_PER_CHUNK] tileIds)
+ * column heights:    widthInChunks * unsigned short, none greater than maxColumnHeight
+ * chunk grid:        widthInChunks * maxColumnHeight * short chunkDefinitionIndex
+ * texture names:     textureNameCount * (unsigned short byteLength, UTF-8 bytes)
+ * </pre>
+ * Shapes are registered in order, so shape 0 must be the empty shape and the tile IDs in the chunk definitions are
+ * the same as in the {@link TileRegistry} they end up in. A texture name index of -1 means the chunk is empty.
+ * Tile IDs are indexed by (tileX * TILES_PER_CHUNK) + tileY and the grid by (chunkX * maxColumnHeight) + chunkY, with
+ * -1 past the end of a column.
+ * <p>
+ * Every chunk used in the level is only stored once and the grid only refers to them. The data isn't copied - chunks
+ * are only read from the buffer the first time they are asked for - so if the buffer is memory-mapped, only the parts
+ * of the file that are used have to be loaded.
+ */
+public final class Level {
+
+    static final int MAGIC = 0x53474C56; // "SGLV"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 28;
+    static final int SHAPE_SIZE = (2 * TILE_LENGTH) + 5;
+    static final int CHUNK_DEFINITION_SIZE = 2 + (2 * TILES_PER_CHUNK * TILES_PER_CHUNK);
+
+    private final ByteBuffer data;
+    private final int chunkDefinitionCount, widthInChunks, maxColumnHeight;
+    // Where each section starts in data
+    private final int chunkDefinitionsPosition, columnHeightsPosition, gridPosition;
+
+    private final TileRegistry tileRegistry;
+    private final String[] textureNames;
+    // Created from the data the first time each one is used
+    private final Chunk[] chunkDefinitions;
+
+    /**
+     * @param data the contents of a level file, from its current position to its limit. It must not be modified.
+     */
+    public Level(final ByteBuffer data) {
+        this.data = data.slice();
+        try {
+            if (this.data.getInt() != MAGIC) throw new IllegalArgumentException("data is not a level");
+            final short version = this.data.getShort();
+            if (version != VERSION) throw new IllegalArgumentException("data is level format version " + version + " but only version " + VERSION + " is supported");
+            final byte tilesPerChunk = this.data.get(), tileLength = this.data.get();
+            if (tilesPerChunk != TILES_PER_CHUNK || tileLength != TILE_LENGTH) throw new IllegalArgumentException("data has " + tilesPerChunk + " tiles per chunk of length " + tileLength + " instead of " + TILES_PER_CHUNK + " of length " + TILE_LENGTH);
+
+            final int shapeCount = readCount("shapeCount");
+            chunkDefinitionCount = readCount("chunkDefinitionCount");
+            widthInChunks = readCount("widthInChunks");
+            maxColumnHeight = readCount("maxColumnHeight");
+            final int textureNameCount = readCount("textureNameCount");
+
+            //Worked out as longs first, since counts from a corrupt file could overflow an int
+            final long textureNamesPosition = HEADER_SIZE + ((long) shapeCount * SHAPE_SIZE) + ((long) chunkDefinitionCount * CHUNK_DEFINITION_SIZE)
+                + ((long) widthInChunks * 2) + ((long) widthInChunks * maxColumnHeight * 2);
+            //Every texture name takes at least the two bytes of its length
+            if (textureNamesPosition + ((long) textureNameCount * 2) > this.data.limit()) throw new IllegalArgumentException("data ends before the end of the level");
+
+            chunkDefinitionsPosition = HEADER_SIZE + (shapeCount * SHAPE_SIZE);
+            columnHeightsPosition = chunkDefinitionsPosition + (chunkDefinitionCount * CHUNK_DEFINITION_SIZE);
+            gridPosition = columnHeightsPosition + (widthInChunks * 2);
+
+            for (int chunkX = 0; chunkX < widthInChunks; chunkX++) {
+                final int columnHeight = getColumnHeight(chunkX);
+                if (columnHeight > maxColumnHeight) throw new IllegalArgumentException("Column " + chunkX + " is " + columnHeight + " chunks high but maxColumnHeight is " + maxColumnHeight);
+            }
+
+            tileRegistry = readShapes(shapeCount);
+
+            textureNames = new String[textureNameCount];
+            this.data.position((int) textureNamesPosition);
+            for (int i = 0; i < textureNameCount; i++) {
+                //Lengths are unsigned, and are checked before anything is allocated for them
+                final int length = this.data.getShort() & 0xFFFF;
+                if (length > this.data.remaining()) throw new IllegalArgumentException("Texture name " + i + " is " + length + " bytes long but only " + this.data.remaining() + " bytes are left");
+                final byte[] name = new byte[length];
+                this.data.get(name);
+                textureNames[i] = new String(name, StandardCharsets.UTF_8);
+            }
+        } catch (final BufferUnderflowException e) {
+            throw new IllegalArgumentException("data ends before the end of the level");
+        }
+
+        chunkDefinitions = new Chunk[chunkDefinitionCount];
+    }
+
+    private int readCount(final String name) {
+        final int count = data.getInt();
+        if (count < 0) throw new IllegalArgumentException(name + " is " + count + " but cannot be negative");
+        return count;
+    }
+
+    private TileRegistry readShapes(final int shapeCount) {
+        final TileRegistry registry = new TileRegistry();
+        final int[] heights = new int[TILE_LENGTH], widths = new int[TILE_LENGTH];
+        data.position(HEADER_SIZE);
+        for (int shape = 0; shape < shapeCount; shape++) {
+            for (int block = 0; block < TILE_LENGTH; block++) heights[block] = data.get();
+            for (int block = 0; block < TILE_LENGTH; block++) widths[block] = data.get();
+            final float angle = data.getFloat();
+            final int solidity = data.get();
+
+            //The registry already starts with the empty shape, so registering it again just returns its ID
+            if (registry.register(heights, widths, angle, solidity) != TileRegistry.toId(shape, 0)) {
+                throw new IllegalArgumentException("Shape " + shape + " is a duplicate of an earlier shape");
+            }
+        }
+        return registry;
+    }
+
+    public int getWidthInChunks() {
+        return widthInChunks;
+    }
+
+    /**
+     * @return the number of chunks in the tallest column. Columns may be shorter.
+     */
+    public int getMaxColumnHeight() {
+        return maxColumnHeight;
+    }
+
+    /**
+     * @return the number of chunks in the column, between 0 and {@link #getMaxColumnHeight()}
+     */
+    public int getColumnHeight(final int chunkX) {
+        return data.getShort(columnHeightsPosition + (chunkX * 2)) & 0xFFFF;
+    }
+
+    /**
+     * @return the chunk at these indices, which must be within the level
+     */
+    public Chunk getChunk(final int chunkX, final int chunkY) {
+        return getChunkDefinition(getChunkDefinitionIndex(chunkX, chunkY));
+    }
+
+    /**
+     * Only reads the name from the chunk's definition, so the chunk's tiles aren't read if it hasn't been used yet.
+     * @return the name of the texture of the chunk at these indices, which must be within the level. Null if the
+     * chunk is empty.
+     */
+    public String getTextureName(final int chunkX, final int chunkY) {
+        final int index = getChunkDefinitionIndex(chunkX, chunkY);
+        final short textureNameIndex = data.getShort(chunkDefinitionsPosition + (index * CHUNK_DEFINITION_SIZE));
+        if (textureNameIndex == -1) return null;
+        if (textureNameIndex < 0 || textureNameIndex >= textureNames.length) throw new IllegalArgumentException("Chunk definition " + index + " has unknown texture name " + textureNameIndex);
+        return textureNames[textureNameIndex];
+    }
+
+    private int getChunkDefinitionIndex(final int chunkX, final int chunkY) {
+        if (chunkX < 0 || chunkX >= widthInChunks || chunkY < 0 || chunkY >= getColumnHeight(chunkX)) {
+            throw new IllegalArgumentException("There is no chunk at (" + chunkX + ", " + chunkY + ")");
+        }
+        final int index = data.getShort(gridPosition + (((chunkX * maxColumnHeight) + chunkY) * 2));
+        if (index < 0 || index >= chunkDefinitionCount) throw new IllegalArgumentException("Chunk definition " + index + " does not exist");
+        return index;
+    }
+
+    private Chunk getChunkDefinition(final int index) {
+        Chunk chunk = chunkDefinitions[index];
+        if (chunk == null) {
+            final int position = chunkDefinitionsPosition + (index * CHUNK_DEFINITION_SIZE);
+            final short textureNameIndex = data.getShort(position);
+
+            final short[][] tileIdGrid = new short[TILES_PER_CHUNK][TILES_PER_CHUNK];
+            for (int tileX = 0; tileX < TILES_PER_CHUNK; tileX++) {
+                for (int tileY = 0; tileY < TILES_PER_CHUNK; tileY++) {
+                    final short tileId = data.getShort(position + 2 + (((tileX * TILES_PER_CHUNK) + tileY) * 2));
+                    if (TileRegistry.getShape(tileId) >= tileRegistry.getShapeCount() || tileId < 0) throw new IllegalArgumentException("Chunk definition " + index + " has unknown tile ID " + tileId);
+                    tileIdGrid[tileX][tileY] = tileId;
+                }
+            }
+
+            if (textureNameIndex == -1) chunk = new Chunk(tileIdGrid);
+            else {
+                if (textureNameIndex < 0 || textureNameIndex >= textureNames.length) throw new IllegalArgumentException("Chunk definition " + index + " has unknown texture name " + textureNameIndex);
+                chunk = new Chunk(textureNames[textureNameIndex], tileIdGrid);
+            }
+            chunkDefinitions[index] = chunk;
+        }
+        return chunk;
+    }
+
+    /**
+     * @return the registry with the level's shapes, which its chunks' tile IDs refer to
+     */
+    public TileRegistry getTileRegistry() {
+        return tileRegistry;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the contents of a level file, so that each platform can use the fastest way it has.
+ * The default just reads the whole file into memory, which works everywhere.
+ */
+public interface LevelLoader {
+
+    /**
+     * @return the file's contents from position 0 to the limit. It won't be modified.
+     */
+    ByteBuffer load(FileHandle file);
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.sonicgdx.TileMap.TILES_PER_CHUNK;
+import static com.sonicgdx.TileMap.TILE_LENGTH;
+
+/**
+ * Writes a chunk map to the binary level format described in {@link Level}.
+ */
+public final class LevelWriter {
+
+    private LevelWriter() {
+
+    }
+
+    /**
+     * @param map indexed by [chunkX][chunkY], where columns can have different lengths
+     * @param tileRegistry the registry the chunks' tile IDs are from. All of its shapes are written.
+     * @return the contents of the level file
+     */
+    public static byte[] write(final Chunk[][] map, final TileRegistry tileRegistry) {
+        //Chunks which are used several times are only written once
+        final ObjectIntMap<Chunk> chunkDefinitionIndices = new ObjectIntMap<>();
+        final List<Chunk> chunkDefinitions = new ArrayList<>();
+        final ObjectIntMap<String> textureNameIndices = new ObjectIntMap<>();
+        final List<String> textureNames = new ArrayList<>();
+        int maxColumnHeight = 0;
+
+        for (final Chunk[] chunkColumn : map) {
+            maxColumnHeight = Math.max(maxColumnHeight, chunkColumn.length);
+            for (final Chunk chunk : chunkColumn) {
+                if (chunkDefinitionIndices.containsKey(chunk)) continue;
+                if (!chunk.isEmpty() && chunk.getTextureName() == null) throw new IllegalArgumentException("map has a chunk which isn't empty but has no texture name");
+                chunkDefinitionIndices.put(chunk, chunkDefinitions.size());
+                chunkDefinitions.add(chunk);
+
+                final String textureName = chunk.getTextureName();
+                if (textureName != null && !textureNameIndices.containsKey(textureName)) {
+                    textureNameIndices.put(textureName, textureNames.size());
+                    textureNames.add(textureName);
+                }
+            }
+        }
+        if (chunkDefinitions.size() > Short.MAX_VALUE) throw new IllegalArgumentException("map has " + chunkDefinitions.size() + " different chunks but the most that can be written is " + Short.MAX_VALUE);
+        if (maxColumnHeight > 0xFFFF) throw new IllegalArgumentException("map has a column " + maxColumnHeight + " chunks high but the most that can be written is " + 0xFFFF);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeInt(Level.MAGIC);
+            output.writeShort(Level.VERSION);
+            output.writeByte(TILES_PER_CHUNK);
+            output.writeByte(TILE_LENGTH);
+            output.writeInt(tileRegistry.getShapeCount());
+            output.writeInt(chunkDefinitions.size());
+            output.writeInt(map.length);
+            output.writeInt(maxColumnHeight);
+            output.writeInt(textureNames.size());
+
+            for (int shape = 0; shape < tileRegistry.getShapeCount(); shape++) {
+                final short tileId = TileRegistry.toId(shape, 0);
+                for (int block = 0; block < TILE_LENGTH; block++) output.writeByte(tileRegistry.getHeight(tileId, block));
+                for (int block = 0; block < TILE_LENGTH; block++) output.writeByte(tileRegistry.getWidth(tileId, block));
+                //Level files keep degrees, which every step converts to and back from exactly
+                output.writeFloat(Angle.toDegrees(tileRegistry.getAngle(tileId)));
+                output.writeByte(tileRegistry.getSolidity(tileId));
+            }
+
+            for (final Chunk chunk : chunkDefinitions) {
+                //Empty chunks are recognised by not having a texture
+                output.writeShort(chunk.isEmpty() ? -1 : textureNameIndices.get(chunk.getTextureName(), -1));
+                for (int tileX = 0; tileX < TILES_PER_CHUNK; tileX++) {
+                    for (int tileY = 0; tileY < TILES_PER_CHUNK; tileY++) output.writeShort(chunk.getTileId(tileX, tileY));
+                }
+            }
+
+            for (final Chunk[] chunkColumn : map) output.writeShort(chunkColumn.length);
+
+            for (final Chunk[] chunkColumn : map) {
+                for (int chunkY = 0; chunkY < maxColumnHeight; chunkY++) {
+                    output.writeShort(chunkY < chunkColumn.length ? chunkDefinitionIndices.get(chunkColumn[chunkY], -1) : -1);
+                }
+            }
+
+            for (final String textureName : textureNames) {
+                final byte[] name = textureName.getBytes(StandardCharsets.UTF_8);
+                if (name.length > 0xFFFF) throw new IllegalArgumentException("texture name " + textureName + " is " + name.length + " bytes long but the most that can be written is " + 0xFFFF);
+                output.writeShort(name.length);
+                output.write(name);
+            }
+        } catch (final IOException e) {
+            throw new GdxRuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
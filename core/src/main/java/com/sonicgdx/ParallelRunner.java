@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+/**
+ * Runs independent pieces of work, at the same time if the platform has threads. Core can't use threads itself because
+ * of the web backends, so desktop passes in one that does - the default runs everything on the calling thread.
+ */
+public interface ParallelRunner {
+
+    /**
+     * Runs every piece of work on the calling thread, one after the other.
+     */
+    ParallelRunner SEQUENTIAL = new ParallelRunner() {
+        @Override
+        public void runAll(final int count, final Work work) {
+            for (int index = 0; index < count; index++) work.run(index);
+        }
+
+        @Override
+        public int getParallelism() {
+            return 1;
+        }
+    };
+
+    /**
+     * One piece of work, identified by its index.
+     */
+    interface Work {
+        void run(int index);
+    }
+
+    /**
+     * Runs work for every index from 0 to count - 1 in any order, and returns once all of them have finished.
+     */
+    void runAll(int count, Work work);
+
+    /**
+     * @return how many pieces of work can usefully run at the same time
+     */
+    int getParallelism();
+}
@@ -16,15 +16,12 @@
 
 package com.sonicgdx;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Audio;
-import com.badlogic.gdx.Input;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 
-import java.util.Optional;
+import java.nio.ByteBuffer;
 
 /**
  * This is the class that handles player movement, player collision with the ground as well as player collision
@@ -34,6 +31,12 @@ import java.util.Optional;
 public class Player extends Entity {
     private boolean flipX = false, flipY = false;
     private boolean debugMode = false, isGrounded, isJumping;
+    private PlayerInput input;
+    // The input for the current physics step, read once at the start of update()
+    private int heldActions, pressedActions;
+    // Whether the last step changed nothing and the next one can be skipped, and the TileMap revision it was taken with
+    private boolean resting = false;
+    private int restRevision;
 
     // Original: ACCELERATION = 0.046875F, DECELERATION = 0.5F, DEBUG_SPEED = 1.5F, MAX_SPEED = 6, SLOPE_FACTOR = 0.125, AIR_ACCELERATION = 0.09375F, GRAVITY_FORCE = 0.21875F;
     // Original values were designed to occur 60 times every second so by multiplying it by 60 you get the amount of pixels moved per second.
@@ -46,34 +49,278 @@ public class Player extends Entity {
     private static final int
         DECELERATION = 1800,
         MAX_SPEED = 360,
-        JUMP_FORCE = 390;
-
-    private float groundVelocity = 0, groundAngle = 0;
-    private final Sensor sensorA, sensorB, sensorE, sensorF;
+        JUMP_FORCE = 390,
+        DEBUG_SPEED = 90;
+
+    private float groundVelocity = 0;
+    // In 256-step Angle format, so that slopes only need table lookups
+    private int groundAngle = 0;
+    // Indices of each sensor in the batch - A and B are the floor sensors, E and F the wall sensors
+    private final SensorBatch sensors = new SensorBatch(4);
+    private final int sensorA, sensorB, sensorE, sensorF;
     private TextureRegion spriteRegion;
     private final Vector2 velocity;
-    private final Sound jumpSound;
-    Player(final float widthRadius, final float heightRadius) {
+
+    /*
+    Fixed-point physics - see setFixedPoint(). While it is on, these are used instead of position, velocity and
+    groundVelocity, and position is only copied from them. Positions are in Fixed subpixels and speeds in subpixels
+    per step, like the original games.
+    */
+    private boolean fixedPoint = false;
+    private int fixedX, fixedY, xSpeed, ySpeed, groundSpeed;
+    private final int fixedWidthRadius, fixedHeightRadius;
+    // The constants above in subpixels per step (or per step squared) for the step length they were converted for
+    private float fixedConstantsDelta = -1;
+    private int stepsPerSecond;
+    private int fixedAcceleration, fixedAirAcceleration, fixedFriction, fixedSlopeFactor, fixedGravity, fixedDeceleration,
+        fixedMaxSpeed, fixedJumpForce, fixedJumpReleaseSpeed, fixedDebugSpeed;
+    private Sound jumpSound;
+
+    /**
+     * Creates a player without any graphics or sounds, so that it only needs the TileMap to run. Use
+     * {@link #setSpriteRegion(TextureRegion)} and {@link #setJumpSound(Sound)} if it is going to be drawn and heard.
+     * @param input where the player's controls are read from once every physics step
+     */
+    Player(final float widthRadius, final float heightRadius, final PlayerInput input) {
         super(widthRadius, heightRadius);
-        spriteRegion = GameScreen.getTextureRegion("sonic-idle", 0);
+        this.input = input;
         position = new Vector2(50,200); // Sets the player's starting position at (50,200).
+        previousPosition.set(position);
         velocity = new Vector2(); //Initialises to zero starting speed
-        sensorA = new Sensor(); //Copies the player's position to the left floor sensor's.
-        sensorB = new Sensor(); //Copies the player's position but placed at the sprite's right instead of left.
-        sensorE = new Sensor(); //Copies the player's position but placed at the middle y position instead of the bottom
-        sensorF = new Sensor(); //Copies the player's position but placed at the middle y position instead of the bottom and at the sprite's right instead of left.
+        fixedWidthRadius = Fixed.fromFloat(widthRadius);
+        fixedHeightRadius = Fixed.fromFloat(heightRadius);
+        sensorA = sensors.add(SensorBatch.FLOOR); //Copies the player's position to the left floor sensor's.
+        sensorB = sensors.add(SensorBatch.FLOOR); //Copies the player's position but placed at the sprite's right instead of left.
+        sensorE = sensors.add(SensorBatch.WALL); //Copies the player's position but placed at the middle y position instead of the bottom
+        sensorF = sensors.add(SensorBatch.WALL); //Copies the player's position but placed at the middle y position instead of the bottom and at the sprite's right instead of left.
         calculateSensorPositions();
+    }
+
+    /**
+     * Puts the player back at its starting position with none of its movement, as if it had just been created.
+     */
+    public void reset() {
+        position.set(50,200);
+        previousPosition.set(position);
+        velocity.setZero();
+        groundVelocity = 0; groundAngle = 0;
+        isGrounded = false; isJumping = false; debugMode = false;
+        flipX = false; flipY = false;
+        resting = false;
+        if (fixedPoint) copyToFixedPoint();
+        calculateSensorPositions();
+    }
+
+    /**
+     * Switches between float and fixed-point physics. Fixed-point physics only uses integer arithmetic, so it gives
+     * the same results on every backend and is cheaper on the web ones - see {@link Fixed}. The current state carries
+     * over, rounded to the nearest subpixel.
+     */
+    public void setFixedPoint(final boolean fixedPoint) {
+        if (this.fixedPoint == fixedPoint) return;
+        this.fixedPoint = fixedPoint;
+        resting = false;
+        if (fixedPoint) copyToFixedPoint();
+        //The speeds are per step, so the step length from the last update is needed to turn them back into velocities
+        else if (fixedConstantsDelta > 0) {
+            velocity.set(Fixed.toFloat(xSpeed) / fixedConstantsDelta, Fixed.toFloat(ySpeed) / fixedConstantsDelta);
+            groundVelocity = Fixed.toFloat(groundSpeed) / fixedConstantsDelta;
+        }
+        calculateSensorPositions();
+    }
+
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    private void copyToFixedPoint() {
+        fixedX = Fixed.fromFloat(position.x);
+        fixedY = Fixed.fromFloat(position.y);
+        //Until the first update gives the step length, velocities can only be carried over at 0
+        xSpeed = fixedConstantsDelta > 0 ? Fixed.fromFloat(velocity.x * fixedConstantsDelta) : 0;
+        ySpeed = fixedConstantsDelta > 0 ? Fixed.fromFloat(velocity.y * fixedConstantsDelta) : 0;
+        groundSpeed = fixedConstantsDelta > 0 ? Fixed.fromFloat(groundVelocity * fixedConstantsDelta) : 0;
+    }
 
-        jumpSound = Gdx.audio.newSound(Gdx.files.internal("sounds/jump.wav"));
+    /**
+     * Converts the physics constants to subpixels for a new step length. They are only rounded once, so the same step
+     * length always gives the same ints.
+     */
+    private void updateFixedConstants(final float delta) {
+        if (delta == fixedConstantsDelta) return;
+        if (fixedConstantsDelta <= 0) {
+            //Velocities couldn't be converted without the step length, so it is done now instead
+            xSpeed = Fixed.fromFloat(velocity.x * delta);
+            ySpeed = Fixed.fromFloat(velocity.y * delta);
+            groundSpeed = Fixed.fromFloat(groundVelocity * delta);
+        }
+        fixedConstantsDelta = delta;
+        stepsPerSecond = Math.round(1 / delta);
+        //Accelerations are in pixels per second squared and speeds in pixels per second
+        final float deltaSquared = delta * delta;
+        fixedAcceleration = Fixed.fromFloat(ACCELERATION * deltaSquared);
+        fixedAirAcceleration = Fixed.fromFloat(AIR_ACCELERATION * deltaSquared);
+        fixedFriction = Fixed.fromFloat(FRICTION * deltaSquared);
+        fixedSlopeFactor = Fixed.fromFloat(SLOPE_FACTOR * deltaSquared);
+        fixedGravity = Fixed.fromFloat(GRAVITY_FORCE * deltaSquared);
+        fixedDeceleration = Fixed.fromFloat(DECELERATION * deltaSquared);
+        fixedMaxSpeed = Fixed.fromFloat(MAX_SPEED * delta);
+        fixedJumpForce = Fixed.fromFloat(JUMP_FORCE * delta);
+        fixedJumpReleaseSpeed = Fixed.fromFloat(4 * delta);
+        fixedDebugSpeed = Fixed.fromFloat(DEBUG_SPEED * delta);
     }
 
-    //TODO Tommy Ettinger's digital extension could be used for faster operations on GWT
+    /**
+     * @param input where the player's controls are read from from the next physics step onwards
+     */
+    public void setInput(final PlayerInput input) {
+        this.input = input;
+    }
+
+    public PlayerInput getInput() {
+        return input;
+    }
+
+    /**
+     * @return a hash of everything that affects the player's next physics step, so that two runs can be compared
+     * step by step without storing their whole state.
+     */
+    public int getStateHash() {
+        if (fixedPoint) {
+            int hash = fixedX;
+            hash = 31 * hash + fixedY;
+            hash = 31 * hash + xSpeed;
+            hash = 31 * hash + ySpeed;
+            hash = 31 * hash + groundSpeed;
+            hash = 31 * hash + groundAngle;
+            hash = 31 * hash + (isGrounded ? 1 : 0);
+            hash = 31 * hash + (isJumping ? 1 : 0);
+            return 31 * hash + (debugMode ? 1 : 0);
+        }
+        int hash = Float.floatToIntBits(position.x);
+        hash = 31 * hash + Float.floatToIntBits(position.y);
+        hash = 31 * hash + Float.floatToIntBits(velocity.x);
+        hash = 31 * hash + Float.floatToIntBits(velocity.y);
+        hash = 31 * hash + Float.floatToIntBits(groundVelocity);
+        hash = 31 * hash + groundAngle;
+        hash = 31 * hash + (isGrounded ? 1 : 0);
+        hash = 31 * hash + (isJumping ? 1 : 0);
+        return 31 * hash + (debugMode ? 1 : 0);
+    }
+
+    public void setSpriteRegion(final TextureRegion spriteRegion) {
+        this.spriteRegion = spriteRegion;
+    }
+
+    /**
+     * @param jumpSound played whenever the player jumps. The player disposes it when it is disposed.
+     */
+    public void setJumpSound(final Sound jumpSound) {
+        this.jumpSound = jumpSound;
+    }
+
+    /**
+     * The number of bytes {@link #writeState(ByteBuffer)} writes.
+     */
+    static final int STATE_SIZE = (8 * Float.BYTES) + 2 + (5 * Integer.BYTES) + 1;
+
+    /**
+     * Writes everything update() changes, including which sensors are active, so that it can be put back with
+     * {@link #readState(ByteBuffer)} - see {@link StateHistory}.
+     */
+    void writeState(final ByteBuffer buffer) {
+        buffer.putFloat(position.x).putFloat(position.y);
+        buffer.putFloat(previousPosition.x).putFloat(previousPosition.y);
+        buffer.putFloat(velocity.x).putFloat(velocity.y);
+        buffer.putFloat(groundVelocity);
+        buffer.put((byte) groundAngle);
+        buffer.put((byte) ((isGrounded ? 1 : 0) | (isJumping ? 2 : 0) | (debugMode ? 4 : 0) | (flipX ? 8 : 0) | (flipY ? 16 : 0) | (fixedPoint ? 32 : 0)));
+        buffer.putFloat(fixedConstantsDelta);
+        buffer.putInt(fixedX).putInt(fixedY).putInt(xSpeed).putInt(ySpeed).putInt(groundSpeed);
+        buffer.put((byte) ((sensors.isActive(sensorA) ? 1 : 0) | (sensors.isActive(sensorB) ? 2 : 0) | (sensors.isActive(sensorE) ? 4 : 0) | (sensors.isActive(sensorF) ? 8 : 0)));
+    }
 
+    void readState(final ByteBuffer buffer) {
+        position.set(buffer.getFloat(), buffer.getFloat());
+        previousPosition.set(buffer.getFloat(), buffer.getFloat());
+        velocity.set(buffer.getFloat(), buffer.getFloat());
+        groundVelocity = buffer.getFloat();
+        groundAngle = buffer.get() & 0xFF;
+        final int flags = buffer.get();
+        isGrounded = (flags & 1) != 0;
+        isJumping = (flags & 2) != 0;
+        debugMode = (flags & 4) != 0;
+        flipX = (flags & 8) != 0;
+        flipY = (flags & 16) != 0;
+        fixedPoint = (flags & 32) != 0;
+        //The constants were converted for this step length, so this player needs the same ones before the speeds are
+        //restored - otherwise its next step would convert the speeds again from the velocities
+        final float constantsDelta = buffer.getFloat();
+        if (constantsDelta > 0) updateFixedConstants(constantsDelta);
+        else fixedConstantsDelta = constantsDelta;
+        fixedX = buffer.getInt();
+        fixedY = buffer.getInt();
+        xSpeed = buffer.getInt();
+        ySpeed = buffer.getInt();
+        groundSpeed = buffer.getInt();
+        final int activeSensors = buffer.get();
+        sensors.setActive(sensorA, (activeSensors & 1) != 0);
+        sensors.setActive(sensorB, (activeSensors & 2) != 0);
+        sensors.setActive(sensorE, (activeSensors & 4) != 0);
+        sensors.setActive(sensorF, (activeSensors & 8) != 0);
+        //Sensor distances are found again at the start of every step, so only their positions have to be updated
+        calculateSensorPositions();
+        resting = false;
+    }
 
     @Override
     public void update(final float delta) {
-        //TODO Would be better to implement an InputProcessor. This makes more sense as an interrupt rather than constant polling.
-        if (Gdx.input.isKeyJustPressed(Input.Keys.Q))
+        heldActions = input.getHeldActions();
+        pressedActions = input.consumePressedActions();
+
+        //A resting player would end the step exactly where it started, so it can be skipped until something changes
+        if (resting) {
+            if (heldActions == 0 && pressedActions == 0 && TileMap.getRevision() == restRevision) return;
+            resting = false;
+        }
+        final boolean stillAtStart = isGrounded && !debugMode && heldActions == 0 && pressedActions == 0 && getGroundSpeed() == 0;
+        final float startX = position.x, startY = position.y;
+        final int startAngle = groundAngle;
+
+        if (fixedPoint) fixedUpdate(delta);
+        else floatUpdate(delta);
+
+        /*
+        The step only depends on the player's state, its input and the terrain, so if standing still with no input
+        changed nothing, every following step would change nothing either.
+        */
+        resting = stillAtStart && isGrounded && getGroundSpeed() == 0
+            && position.x == startX && position.y == startY && groundAngle == startAngle;
+        restRevision = TileMap.getRevision();
+    }
+
+    private float getGroundSpeed() {
+        return fixedPoint ? groundSpeed : groundVelocity;
+    }
+
+    /**
+     * Makes the player take its next step even if it is resting - see {@link #isResting()}. Must be called after
+     * anything outside of update() changes its position or speed.
+     */
+    public void wake() {
+        resting = false;
+    }
+
+    /**
+     * @return true if the player is standing still with no input, so its steps are skipped until there is input, it is
+     * woken with {@link #wake()} or the TileMap changes
+     */
+    public boolean isResting() {
+        return resting;
+    }
+
+    private void floatUpdate(final float delta) {
+        if ((pressedActions & PlayerInput.DEBUG_TOGGLE) != 0)
         {
             //Toggle debug mode
             debugMode = !debugMode;
@@ -93,13 +340,12 @@ public class Player extends Entity {
             if (!isGrounded) {
                 //air state
                 airMove(delta);
-                setAirSensors();
-
-                //if (sensorE.getActive()) sensorE.wallProcess();
-                if (sensorF.getActive()) sensorF.wallProcess();
+                setAirSensors(velocity.x, velocity.y);
+                //Every active sensor is processed in one pass, before any of them move the player
+                sensors.process();
 
                 //since positive distances would mean the player is outside the detected tile, they are not accepted
-                if (sensorF.getDistance() < 0) {
+                if (sensors.getDistance(sensorF) < 0) {
                     //testing only one sensor at this point to see if the basic collision works
                     wallCollision(sensorF);
                 }
@@ -108,34 +354,39 @@ public class Player extends Entity {
             else {
                 groundMove(delta);
 
-                sensorA.setActive(true);
-                sensorB.setActive(true);
+                sensors.setActive(sensorA, true);
+                sensors.setActive(sensorB, true);
+                //Walls aren't checked on the ground yet
+                sensors.setActive(sensorE, false);
+                sensors.setActive(sensorF, false);
 
                 //Updates player position
                 position.mulAdd(velocity,delta);
+
+                sensors.process();
             }
 
-            if (sensorA.getActive() && sensorB.getActive()) {
+            if (sensors.isActive(sensorA) && sensors.isActive(sensorB)) {
 
-                final Optional<Sensor> winningSensorOptional = floorSensors();
+                final int winningSensor = floorSensors();
 
                 //FIXME check may need to be unhoisted if some code doesn't depend on this being true
-                if (winningSensorOptional.isPresent()) {
+                if (winningSensor != -1) {
 
-                    final Sensor winningSensor = winningSensorOptional.get();
+                    final float winningDistance = sensors.getDistance(winningSensor);
 
                     if (isGrounded) {
                         //checks that the sensor distance is in a valid range before correcting the player's position
-                        if (Math.max(-Math.abs(velocity.x) - 4, -14) < winningSensor.getDistance() && winningSensor.getDistance() < 14) groundCollision(winningSensor); //TODO comment out this line first if there are physics bugs.
+                        if (Math.max(-Math.abs(velocity.x) - 4, -14) < winningDistance && winningDistance < 14) groundCollision(winningSensor); //TODO comment out this line first if there are physics bugs.
                         else isGrounded = false;
                     }
                     else{
                         if (Math.abs(velocity.x) >= Math.abs(velocity.y)) {
                             if (velocity.x > 0) { //going mostly right
-                                if (winningSensor.getDistance() >= 0 && velocity.y <= 0) groundCollision(winningSensor);
+                                if (winningDistance >= 0 && velocity.y <= 0) groundCollision(winningSensor);
                             }
                             else { //going mostly left
-                                if (winningSensor.getDistance() >= 0 && velocity.y <= 0) groundCollision(winningSensor);
+                                if (winningDistance >= 0 && velocity.y <= 0) groundCollision(winningSensor);
                             }
                         }
                         else {
@@ -143,14 +394,12 @@ public class Player extends Entity {
 
                             }
                             else { //going mostly down
-                                if (winningSensor.getDistance() >= 0 && (sensorA.getDistance() <= -(velocity.y + 8) || sensorB.getDistance() >= -(velocity.y + 8))) groundCollision(winningSensor);
+                                if (winningDistance >= 0 && (sensors.getDistance(sensorA) <= -(velocity.y + 8) || sensors.getDistance(sensorB) >= -(velocity.y + 8))) groundCollision(winningSensor);
                             }
                         }
                     }
                 }
             }
-            //TODO perhaps add a check if the player is stationary before calculating collision to increase FPS
-
         }
 
         enforceBoundaries();
@@ -158,18 +407,27 @@ public class Player extends Entity {
         calculateSensorPositions();
 
         //if (speedX == 0 && speedY == 0 && isGrounded) spriteRegion = GameScreen.getTextureRegion("sonic-idle",0);
+    }
+
+    /**
+     * Must only be called once a sprite region has been set.
+     */
+    @Override
+    public void updateSprite(final float alpha) {
+        final float xPosition = getInterpolatedXPosition(alpha);
+        final float bottomY = getInterpolatedYPosition(alpha) - HEIGHT_RADIUS;
 
         sprite.setRegion(spriteRegion);
 
         //FIXME rotation
 
         //Rotates the sprite first, and THEN changes its co-ordinates - translating it
-        sprite.setRotation(groundAngle);
+        sprite.setRotation(Angle.toDegrees(groundAngle));
 
         //TODO calculate y Position from ground up
-        sprite.setBounds(position.x - ((spriteRegion.getRegionWidth() + 1) / 2F),bottomEdgeY, spriteRegion.getRegionWidth(), spriteRegion.getRegionHeight());
+        sprite.setBounds(xPosition - ((spriteRegion.getRegionWidth() + 1) / 2F),bottomY, spriteRegion.getRegionWidth(), spriteRegion.getRegionHeight());
         //Since the xPos is the centre, you can just subtract the difference between the first pixel and the middle pixel to get the sprite co-ordinates.
-        //yPos is also the centre, but bottomEdgeY is used instead since sprites don't have constant height and positioning above the ground can be inconsistent.
+        //yPos is also the centre, but the bottom edge is used instead since sprites don't have constant height and positioning above the ground can be inconsistent.
         sprite.setOriginCenter(); //TODO only set origin when region, also perhaps look into setOriginBasedPosition
 
         sprite.flip(flipX,flipY);
@@ -180,16 +438,16 @@ public class Player extends Entity {
     private void groundMove(final float delta) {
 
         //These booleans are true if any of the inputs which cause their respective action are pressed
-        //or held down in the current frame
+        //or held down in the current step
 
         //"Move Right" action
-        final boolean rightPressed = Gdx.input.isKeyPressed(Input.Keys.D) || (Gdx.input.isKeyPressed(Input.Keys.RIGHT));
+        final boolean rightPressed = (heldActions & PlayerInput.RIGHT) != 0;
         //"Move Left" action
-        final boolean leftPressed = Gdx.input.isKeyPressed(Input.Keys.A) || (Gdx.input.isKeyPressed(Input.Keys.LEFT));
-        //"Jump" action
-        final boolean jumpJustPressed = Gdx.input.isKeyJustPressed(Input.Keys.SPACE);
+        final boolean leftPressed = (heldActions & PlayerInput.LEFT) != 0;
+        //"Jump" action - only pressed since the last step, not held
+        final boolean jumpJustPressed = (pressedActions & PlayerInput.JUMP) != 0;
 
-        if (groundVelocity != 0) groundVelocity -= delta * SLOPE_FACTOR * MathUtils.sinDeg(groundAngle); //TODO this only happens when the player is not in ceiling mode.
+        if (groundVelocity != 0) groundVelocity -= delta * SLOPE_FACTOR * Angle.sin(groundAngle); //TODO this only happens when the player is not in ceiling mode.
 
         /*Moving right and moving left are mutually exclusive - if both are true, the outcome
         is the same as if both are false*/
@@ -212,7 +470,7 @@ public class Player extends Entity {
             groundVelocity -= Math.min(Math.abs(groundVelocity), FRICTION * delta) * Math.signum(groundVelocity);
         }
 
-        velocity.set(groundVelocity * MathUtils.cosDeg(groundAngle), groundVelocity * MathUtils.sinDeg(groundAngle));
+        velocity.set(groundVelocity * Angle.cos(groundAngle), groundVelocity * Angle.sin(groundAngle));
 
         if (jumpJustPressed) jump(delta); //FIXME placement different from original, may cause bugs.
 
@@ -226,53 +484,41 @@ public class Player extends Entity {
      * Limits of -16<=x<=16 are not used as those distances are likely too far away from the player to matter.
      * Uses angle for rotation and speed of the player and for player slope physics. TODO
      * Applies unique calculation to find minimum value, from Sonic 2 depending on the player's speed.
-     * @return "Winning Distance" sensor wrapped in Optional.
+     * @return the index of the "Winning Distance" sensor.
      * <p>
-     * Empty optional when sensor distances are equal but their respective returnTiles are different -
+     * -1 when sensor distances are equal but their respective returnTiles are different -
      * this prevents the groundAngle being changed and the player rotating haphazardly.
      */
-    private Optional<Sensor> floorSensors() {
-        //Checks below and potentially above the positions of both sensors to find the nearest tile if one is present.
-        sensorA.floorProcess();
-        sensorB.floorProcess();
+    private int floorSensors() {
+        //Both sensors have already checked below and potentially above their positions for the nearest tile in sensors.process().
+        final float distanceA = sensors.getDistance(sensorA), distanceB = sensors.getDistance(sensorB);
 
         /*
         Returns the sensor that had found the greater distance.
         Note that even if it returns a sensor it may not have a valid distance.
         The validation happens outside this method.
         */
-        if(sensorA.getDistance() > sensorB.getDistance()) return Optional.of(sensorA);
-        else if (sensorA.getDistance() < sensorB.getDistance()) return Optional.of(sensorB);
+        if(distanceA > distanceB) return sensorA;
+        else if (distanceA < distanceB) return sensorB;
         //If sensorB could be returned in this case it would not make a difference - the sensors are essentially the same.
-        else if (sensorA.getTile().equals(sensorB.getTile())) return Optional.of(sensorA); //FIXME comment out this line first if there are physics bugs.
+        else if (sensors.getTileId(sensorA) == sensors.getTileId(sensorB)) return sensorA; //FIXME comment out this line first if there are physics bugs.
         /*both sensors have equal distances but are but on different tiles -
         Choosing one of them can cause issues with the edges between two different tile types, with the player rotating back and forth for a moment.
         This is the case no matter which is chosen (except the issue occurs with slopes facing opposite sides depending on that).
         So we cannot choose between them.*/
-        else return Optional.empty();
+        else return -1;
 
     }
 
-    private void groundCollision(final Sensor sensor) {
+    private void groundCollision(final int sensor) {
         /*
         Corrects the player's Y position according to the distance found by the sensor.
         This should place them at the same height as the found tile after the frame is drawn, responding to the collision.
         Note that the player might not be on top of a surface even after this - this line may run multiple times if they
         are inside the floor to push them upwards and out of it.
         */
-        position.y += sensor.getDistance();
-
-        /*
-        In the special case that the Tile has an angle of 360 (the 'flagged' angle)
-        the player's current angle is rounded to the nearest 90 degrees.
-        An example of a use case is the peak of a ramp which sends the player directly upwards when they run off it.
-        */
-        if (groundAngle == 360) {
-            groundAngle = snapToNearest(groundAngle,90);
-        }
-
-        //Otherwise, sets the player's ground angle to that of the tile found by the sensor.
-        else groundAngle = sensor.getTile().getAngle(); //TODO possibly apply this to enemies?
+        position.y += sensors.getDistance(sensor);
+        updateGroundAngle(sensor);
 
         /*
         This block is run when the player lands onto the ground from the air (e.g. after jumping).
@@ -280,35 +526,57 @@ public class Player extends Entity {
         depending on the angle of the ground.
         */
         if (!isGrounded) {
-            if (0 <= groundAngle && groundAngle <= 23) groundVelocity = velocity.x;
-                //TODO when mirrored... https://info.sonicretro.org/SPG:Slope_Physics#When_Falling_Downward
-            else if (24 <= groundAngle && groundAngle <= 45) {
-                if (Math.abs(velocity.x) >= Math.abs(velocity.y)) {
-                    groundVelocity = velocity.x;
-                } else {
-                    groundVelocity = velocity.y * 0.5F * -MathUtils.sinDeg(groundAngle);
-                }
-            }
-            else if (46 <= groundAngle && groundAngle <= 90) {
-                if (Math.abs(velocity.x) >= Math.abs(velocity.y)) {
+            //Slopes facing left and right are in the same range - https://info.sonicretro.org/SPG:Slope_Physics#When_Falling_Downward
+            switch (Angle.getLandingRange(groundAngle)) {
+                case Angle.LANDING_FLAT:
                     groundVelocity = velocity.x;
-                } else {
-                    groundVelocity = velocity.y * -MathUtils.sinDeg(groundAngle);
-                }
+                    break;
+                case Angle.LANDING_SLOPE:
+                    if (Math.abs(velocity.x) >= Math.abs(velocity.y)) {
+                        groundVelocity = velocity.x;
+                    } else {
+                        groundVelocity = velocity.y * 0.5F * -Angle.sin(groundAngle);
+                    }
+                    break;
+                case Angle.LANDING_STEEP:
+                    if (Math.abs(velocity.x) >= Math.abs(velocity.y)) {
+                        groundVelocity = velocity.x;
+                    } else {
+                        groundVelocity = velocity.y * -Angle.sin(groundAngle);
+                    }
+                    break;
+                default:
+                    //TODO landing on ceilings
+                    break;
             }
             isGrounded = true;
             if (isJumping) isJumping = false;
         }
     }
 
+    private void updateGroundAngle(final int sensor) {
+        /*
+        In the special case that the Tile has the 'flagged' angle
+        the player's current angle is rounded to the nearest 90 degrees.
+        An example of a use case is the peak of a ramp which sends the player directly upwards when they run off it.
+        */
+        final int tileAngle = sensors.getTileAngle(sensor);
+        if (tileAngle == Angle.FLAGGED) {
+            groundAngle = Angle.snapToQuarter(groundAngle);
+        }
+
+        //Otherwise, sets the player's ground angle to that of the tile found by the sensor.
+        else groundAngle = tileAngle; //TODO possibly apply this to enemies?
+    }
+
     /**
-     * @param sensor the sensor that has collided with a wall.
+     * @param sensor the index of the sensor that has collided with a wall.
      * (Distances have been generated beforehand)
      */
-    private void wallCollision(final Sensor sensor) {
+    private void wallCollision(final int sensor) {
         //the distance is the difference between the tile's x position and the sensor's
         //since only a negative distance is accepted, the player will be pushed backwards by this amount
-        position.x += sensor.getDistance();
+        position.x += sensors.getDistance(sensor);
     }
 
     /**
@@ -317,12 +585,12 @@ public class Player extends Entity {
      */
     private void jump(final float delta) {
         //FIXME bug when jumping while moving downhill on a slope
-        velocity.x -= JUMP_FORCE * MathUtils.sinDeg(groundAngle);
-        velocity.y += JUMP_FORCE * MathUtils.cosDeg(groundAngle);
+        velocity.x -= JUMP_FORCE * Angle.sin(groundAngle);
+        velocity.y += JUMP_FORCE * Angle.cos(groundAngle);
         isGrounded = false; isJumping = true;
         //TODO if time is available, jump buffering and coyote time
 
-        jumpSound.play();
+        if (jumpSound != null) jumpSound.play();
     }
 
     private void airMove(final float delta) {
@@ -330,11 +598,11 @@ public class Player extends Entity {
         //or held down in the current frame
 
         //"Move Right" action
-        final boolean rightPressed = Gdx.input.isKeyPressed(Input.Keys.D) || (Gdx.input.isKeyPressed(Input.Keys.RIGHT));
+        final boolean rightPressed = (heldActions & PlayerInput.RIGHT) != 0;
         //"Move Left" action
-        final boolean leftPressed = Gdx.input.isKeyPressed(Input.Keys.A) || (Gdx.input.isKeyPressed(Input.Keys.LEFT));
+        final boolean leftPressed = (heldActions & PlayerInput.LEFT) != 0;
         //"Jump" action
-        final boolean jumpPressed = Gdx.input.isKeyPressed(Input.Keys.SPACE);
+        final boolean jumpPressed = (heldActions & PlayerInput.JUMP) != 0;
 
         //Reduce the height jumped by capping the Y Speed if player releases the jump button (Space) early.
         if (!jumpPressed && velocity.y > 4 && isJumping) velocity.y = 4;
@@ -367,34 +635,34 @@ public class Player extends Entity {
      * Note: The && operator uses short-circuit evaluation (as opposed to &) so will only evaluate the left hand side of the boolean expression is true. This means that
      * if the returned value is null it won't check its distance so won't throw a NullPointerException.
      */
-    private void setAirSensors() {
+    private void setAirSensors(final float xVelocity, final float yVelocity) {
         //TODO insert sensorC and sensorD
-        if (Math.abs(velocity.x) >= Math.abs(velocity.y)) {
+        if (Math.abs(xVelocity) >= Math.abs(yVelocity)) {
             //In both cases the ground sensors will be checked
-            sensorA.setActive(true);
-            sensorB.setActive(true);
-            if (velocity.x > 0) { //going mostly right
+            sensors.setActive(sensorA, true);
+            sensors.setActive(sensorB, true);
+            if (xVelocity > 0) { //going mostly right
 
-                sensorE.setActive(false);
-                sensorF.setActive(true);
+                sensors.setActive(sensorE, false);
+                sensors.setActive(sensorF, true);
             }
             else { //going mostly left
-
-                sensorE.setActive(true);
-                sensorF.setActive(false);
+                //TODO activate sensorE once left walls are collided with - until then its result would be thrown away
+                sensors.setActive(sensorE, false);
+                sensors.setActive(sensorF, false);
             }
         }
         else {
-            //In both cases the wall sensors will be checked
-            sensorE.setActive(true);
-            sensorF.setActive(true);
-            if (velocity.y > 0) { //going mostly up
-                sensorA.setActive(false);
-                sensorB.setActive(false);
+            //In both cases the wall sensors will be checked, though only sensorF is used so far
+            sensors.setActive(sensorE, false);
+            sensors.setActive(sensorF, true);
+            if (yVelocity > 0) { //going mostly up
+                sensors.setActive(sensorA, false);
+                sensors.setActive(sensorB, false);
             }
             else { //going mostly down
-                sensorA.setActive(true);
-                sensorB.setActive(true);
+                sensors.setActive(sensorA, true);
+                sensors.setActive(sensorB, true);
             }
         }
     }
@@ -406,26 +674,191 @@ public class Player extends Entity {
      */
     private void calculateSensorPositions() {
         super.calculateCornerPositions();
-        sensorA.setPositionValues(leftEdgeX,bottomEdgeY);
-        sensorB.setPositionValues(rightEdgeX,bottomEdgeY);
-        sensorE.setPositionValues(leftEdgeX,position.y);
-        sensorF.setPositionValues(rightEdgeX,position.y);
+        if (fixedPoint) {
+            final int left = fixedX - fixedWidthRadius, right = fixedX + fixedWidthRadius, bottom = fixedY - fixedHeightRadius;
+            sensors.setFixedPosition(sensorA, left, bottom);
+            sensors.setFixedPosition(sensorB, right, bottom);
+            sensors.setFixedPosition(sensorE, left, fixedY);
+            sensors.setFixedPosition(sensorF, right, fixedY);
+            return;
+        }
+        sensors.setPosition(sensorA, leftEdgeX,bottomEdgeY);
+        sensors.setPosition(sensorB, rightEdgeX,bottomEdgeY);
+        sensors.setPosition(sensorE, leftEdgeX,position.y);
+        sensors.setPosition(sensorF, rightEdgeX,position.y);
     }
 
     private void debugMove(final float delta) {
-        final int DEBUG_SPEED = 90;
-        if (Gdx.input.isKeyPressed(Input.Keys.D)) position.x += (DEBUG_SPEED * delta);
-        if (Gdx.input.isKeyPressed(Input.Keys.A)) position.x -= (DEBUG_SPEED * delta);
-        if (Gdx.input.isKeyPressed(Input.Keys.W)) position.y += (DEBUG_SPEED * delta);
-        if (Gdx.input.isKeyPressed(Input.Keys.S)) position.y -= (DEBUG_SPEED * delta);
+        if ((heldActions & PlayerInput.RIGHT) != 0) position.x += (DEBUG_SPEED * delta);
+        if ((heldActions & PlayerInput.LEFT) != 0) position.x -= (DEBUG_SPEED * delta);
+        if ((heldActions & PlayerInput.UP) != 0) position.y += (DEBUG_SPEED * delta);
+        if ((heldActions & PlayerInput.DOWN) != 0) position.y -= (DEBUG_SPEED * delta);
         //DEBUG key for testing sprite rotation
-        if (Gdx.input.isKeyJustPressed(Input.Keys.E)) groundAngle += 45;
+        if ((pressedActions & PlayerInput.DEBUG_ROTATE) != 0) groundAngle = (groundAngle + (Angle.QUARTER / 2)) % Angle.STEPS;
         //Gdx.app.debug("deltaTime",String.valueOf(delta));
     }
 
+    /**
+     * The same as update() for fixed-point physics. Every step must be the same length to give the same results.
+     */
+    private void fixedUpdate(final float delta) {
+        updateFixedConstants(delta);
+
+        if ((pressedActions & PlayerInput.DEBUG_TOGGLE) != 0) {
+            debugMode = !debugMode;
+            groundSpeed = 0;
+            xSpeed = 0;
+            ySpeed = 0;
+            groundAngle = 0;
+        }
+        if (debugMode) {
+            fixedDebugMove();
+        }
+        else {
+            if (!isGrounded) {
+                fixedAirMove();
+                setAirSensors(xSpeed, ySpeed);
+                sensors.processFixed();
+
+                if (sensors.getFixedDistance(sensorF) < 0) fixedX += sensors.getFixedDistance(sensorF);
+            }
+            else {
+                fixedGroundMove();
+
+                sensors.setActive(sensorA, true);
+                sensors.setActive(sensorB, true);
+                sensors.setActive(sensorE, false);
+                sensors.setActive(sensorF, false);
+
+                fixedX += xSpeed;
+                fixedY += ySpeed;
+
+                sensors.processFixed();
+            }
+
+            if (sensors.isActive(sensorA) && sensors.isActive(sensorB)) {
+                final int winningSensor = floorSensors();
+                if (winningSensor != -1) {
+                    final int winningDistance = sensors.getFixedDistance(winningSensor);
+                    //The limits are the same as in update(), which compares distances to velocities in pixels per second
+                    final int xVelocity = xSpeed * stepsPerSecond, yVelocity = ySpeed * stepsPerSecond;
+
+                    if (isGrounded) {
+                        if (Math.max(-Math.abs(xVelocity) - Fixed.fromInt(4), Fixed.fromInt(-14)) < winningDistance && winningDistance < Fixed.fromInt(14)) fixedGroundCollision(winningSensor);
+                        else isGrounded = false;
+                    }
+                    else if (Math.abs(xSpeed) >= Math.abs(ySpeed)) {
+                        if (winningDistance >= 0 && ySpeed <= 0) fixedGroundCollision(winningSensor);
+                    }
+                    else if (ySpeed <= 0) {
+                        final int landingLimit = -(yVelocity + Fixed.fromInt(8));
+                        if (winningDistance >= 0 && (sensors.getFixedDistance(sensorA) <= landingLimit || sensors.getFixedDistance(sensorB) >= landingLimit)) fixedGroundCollision(winningSensor);
+                    }
+                }
+            }
+        }
+
+        //Entity only works with the float position, which holds every fixed-point position exactly
+        position.set(Fixed.toFloat(fixedX), Fixed.toFloat(fixedY));
+        enforceBoundaries();
+        fixedX = Fixed.fromFloat(position.x);
+        fixedY = Fixed.fromFloat(position.y);
+
+        calculateSensorPositions();
+    }
+
+    private void fixedGroundMove() {
+        final boolean rightPressed = (heldActions & PlayerInput.RIGHT) != 0;
+        final boolean leftPressed = (heldActions & PlayerInput.LEFT) != 0;
+        final boolean jumpJustPressed = (pressedActions & PlayerInput.JUMP) != 0;
+
+        if (groundSpeed != 0) groundSpeed -= Fixed.mul(fixedSlopeFactor, Angle.fixedSin(groundAngle));
+
+        if (rightPressed && !leftPressed) {
+            flipX = false;
+            if (groundSpeed < 0) groundSpeed += fixedDeceleration;
+            else if (groundSpeed < fixedMaxSpeed) groundSpeed += fixedAcceleration;
+        }
+        else if (leftPressed && !rightPressed) {
+            flipX = true;
+            if (groundSpeed > 0) groundSpeed -= fixedDeceleration;
+            else if (groundSpeed > -fixedMaxSpeed) groundSpeed -= fixedAcceleration;
+        }
+        else {
+            groundSpeed -= Math.min(Math.abs(groundSpeed), fixedFriction) * Integer.signum(groundSpeed);
+        }
+
+        xSpeed = Fixed.mul(groundSpeed, Angle.fixedCos(groundAngle));
+        ySpeed = Fixed.mul(groundSpeed, Angle.fixedSin(groundAngle));
+
+        if (jumpJustPressed) {
+            xSpeed -= Fixed.mul(fixedJumpForce, Angle.fixedSin(groundAngle));
+            ySpeed += Fixed.mul(fixedJumpForce, Angle.fixedCos(groundAngle));
+            isGrounded = false; isJumping = true;
+            if (jumpSound != null) jumpSound.play();
+        }
+    }
+
+    private void fixedAirMove() {
+        final boolean rightPressed = (heldActions & PlayerInput.RIGHT) != 0;
+        final boolean leftPressed = (heldActions & PlayerInput.LEFT) != 0;
+        final boolean jumpPressed = (heldActions & PlayerInput.JUMP) != 0;
+
+        if (!jumpPressed && ySpeed > fixedJumpReleaseSpeed && isJumping) ySpeed = fixedJumpReleaseSpeed;
+
+        if (rightPressed && !leftPressed) {
+            flipX = false;
+            if (xSpeed < fixedMaxSpeed) xSpeed += fixedAirAcceleration;
+        }
+        else if (leftPressed && !rightPressed) {
+            flipX = true;
+            if (xSpeed > -fixedMaxSpeed) xSpeed -= fixedAirAcceleration;
+        }
+        //Air drag - the original's xsp -= floor(xsp / 0.125) / 256, which is a shift in subpixels
+        if (0 < ySpeed && ySpeed < fixedJumpReleaseSpeed) xSpeed -= xSpeed >> 5;
+
+        fixedX += xSpeed;
+        fixedY += ySpeed;
+
+        ySpeed += fixedGravity;
+    }
+
+    private void fixedGroundCollision(final int sensor) {
+        fixedY += sensors.getFixedDistance(sensor);
+        updateGroundAngle(sensor);
+
+        if (!isGrounded) {
+            switch (Angle.getLandingRange(groundAngle)) {
+                case Angle.LANDING_FLAT:
+                    groundSpeed = xSpeed;
+                    break;
+                case Angle.LANDING_SLOPE:
+                    if (Math.abs(xSpeed) >= Math.abs(ySpeed)) groundSpeed = xSpeed;
+                    else groundSpeed = -Fixed.mul(ySpeed, Angle.fixedSin(groundAngle)) / 2;
+                    break;
+                case Angle.LANDING_STEEP:
+                    if (Math.abs(xSpeed) >= Math.abs(ySpeed)) groundSpeed = xSpeed;
+                    else groundSpeed = -Fixed.mul(ySpeed, Angle.fixedSin(groundAngle));
+                    break;
+                default:
+                    break;
+            }
+            isGrounded = true;
+            if (isJumping) isJumping = false;
+        }
+    }
+
+    private void fixedDebugMove() {
+        if ((heldActions & PlayerInput.RIGHT) != 0) fixedX += fixedDebugSpeed;
+        if ((heldActions & PlayerInput.LEFT) != 0) fixedX -= fixedDebugSpeed;
+        if ((heldActions & PlayerInput.UP) != 0) fixedY += fixedDebugSpeed;
+        if ((heldActions & PlayerInput.DOWN) != 0) fixedY -= fixedDebugSpeed;
+        if ((pressedActions & PlayerInput.DEBUG_ROTATE) != 0) groundAngle = (groundAngle + (Angle.QUARTER / 2)) % Angle.STEPS;
+    }
+
     @Override
     public void dispose() {
-        jumpSound.dispose();
+        if (jumpSound != null) jumpSound.dispose();
         super.dispose();
     }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+/**
+ * Where the Player gets its controls from. Actions are combined into a bitmask with the constants below, so a whole
+ * step of input is just two ints and the physics never has to ask the backend about individual keys.
+ * <p>
+ * Implementations don't have to use Gdx.input at all, which lets the player run without a backend - see
+ * {@link SimulatedPlayerInput}.
+ */
+public interface PlayerInput {
+
+    int RIGHT = 1,
+        LEFT = 1 << 1,
+        UP = 1 << 2,
+        DOWN = 1 << 3,
+        JUMP = 1 << 4,
+        DEBUG_TOGGLE = 1 << 5,
+        DEBUG_ROTATE = 1 << 6;
+
+    /**
+     * @return the actions which are currently held down
+     */
+    int getHeldActions();
+
+    /**
+     * Called once per physics step. Each press must only be returned once, even if it happened several frames ago.
+     * @return the actions which have been pressed since the last call
+     */
+    int consumePressedActions();
+}
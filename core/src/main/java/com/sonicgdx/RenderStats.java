@@ -0,0 +1,186 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Counts the OpenGL work done each frame: draw calls, texture binds, shader switches and vertices from libGDX's
+ * {@link GLProfiler}, and how many times the shared SpriteBatch flushed and the most sprites it held at once.
+ * <p>
+ * A SpriteBatch flushes whenever it is given a region of a different texture, so the flush count shows how well
+ * chunk textures share atlas pages and caches - it is the number to watch when changing either.
+ * <p>
+ * Each frame's values are added to the {@link FrameProfiler}'s counters, so they show up in its overlay. For benchmark
+ * runs, {@link #setLogging(boolean)} also logs their averages and maxima every {@link #LOG_INTERVAL} frames.
+ * <p>
+ * The GLProfiler wraps every OpenGL call, which would slow down the draw calls it measures, so it is only enabled
+ * while logging or while the overlay is visible. Otherwise only the batch flushes are counted.
+ */
+public class RenderStats implements Disposable {
+
+    public static final int LOG_INTERVAL = 120;
+
+    private final GLProfiler profiler;
+    private final SpriteBatch batch;
+    private boolean logging = false, overlayVisible = false;
+
+    private int batchRenderCallsAtStart;
+    private int drawCalls, textureBindings, shaderSwitches, glCalls, vertices, batchFlushes, maxSpritesInBatch;
+
+    // Totals and maxima since the last log
+    private int framesLogged;
+    private long drawCallTotal, textureBindingTotal, shaderSwitchTotal, vertexTotal, batchFlushTotal;
+    private int drawCallMax, textureBindingMax, batchFlushMax;
+
+    /**
+     * Enabling the profiler replaces Gdx.gl with a profiling wrapper, so this should be created before anything keeps
+     * its own reference to it.
+     * @param batch the batch to count flushes of
+     */
+    public RenderStats(final SpriteBatch batch) {
+        this.batch = batch;
+        profiler = new GLProfiler(Gdx.graphics);
+    }
+
+    public void setLogging(final boolean logging) {
+        this.logging = logging;
+    }
+
+    /**
+     * @param overlayVisible whether the {@link FrameProfilerHud} is showing these counts
+     */
+    public void setOverlayVisible(final boolean overlayVisible) {
+        this.overlayVisible = overlayVisible;
+    }
+
+    public boolean isLogging() {
+        return logging;
+    }
+
+    /**
+     * Must be called before anything is drawn in the frame.
+     */
+    public void beginFrame() {
+        //Only switched at the start of a frame, so that a frame is never partly profiled
+        final boolean profiling = logging || overlayVisible;
+        if (profiling != profiler.isEnabled()) {
+            if (profiling) profiler.enable();
+            else profiler.disable();
+        }
+        profiler.reset();
+        batchRenderCallsAtStart = batch.totalRenderCalls;
+        //The batch only ever raises this, so it is cleared to make it per frame
+        batch.maxSpritesInBatch = 0;
+    }
+
+    /**
+     * Must be called after the batch's last end() of the frame.
+     */
+    public void endFrame() {
+        batchFlushes = batch.totalRenderCalls - batchRenderCallsAtStart;
+        maxSpritesInBatch = batch.maxSpritesInBatch;
+        FrameProfiler.count(FrameProfiler.Counter.BATCH_FLUSHES, batchFlushes);
+        if (!profiler.isEnabled()) return;
+
+        drawCalls = profiler.getDrawCalls();
+        textureBindings = profiler.getTextureBindings();
+        shaderSwitches = profiler.getShaderSwitches();
+        glCalls = profiler.getCalls();
+        vertices = (int) profiler.getVertexCount().total;
+
+        FrameProfiler.count(FrameProfiler.Counter.DRAW_CALLS, drawCalls);
+        FrameProfiler.count(FrameProfiler.Counter.TEXTURE_BINDS, textureBindings);
+        FrameProfiler.count(FrameProfiler.Counter.SHADER_SWITCHES, shaderSwitches);
+        FrameProfiler.count(FrameProfiler.Counter.VERTICES, vertices);
+
+        if (logging) addToLog();
+    }
+
+    private void addToLog() {
+        framesLogged++;
+        drawCallTotal += drawCalls;
+        textureBindingTotal += textureBindings;
+        shaderSwitchTotal += shaderSwitches;
+        vertexTotal += vertices;
+        batchFlushTotal += batchFlushes;
+        drawCallMax = Math.max(drawCallMax, drawCalls);
+        textureBindingMax = Math.max(textureBindingMax, textureBindings);
+        batchFlushMax = Math.max(batchFlushMax, batchFlushes);
+        if (framesLogged < LOG_INTERVAL) return;
+
+        Gdx.app.log("RenderStats", "per frame over " + framesLogged + " frames (avg/max):"
+            + " draw calls " + drawCallTotal / framesLogged + "/" + drawCallMax
+            + ", texture binds " + textureBindingTotal / framesLogged + "/" + textureBindingMax
+            + ", batch flushes " + batchFlushTotal / framesLogged + "/" + batchFlushMax
+            + ", shader switches " + shaderSwitchTotal / framesLogged
+            + ", vertices " + vertexTotal / framesLogged);
+
+        framesLogged = 0;
+        drawCallTotal = textureBindingTotal = shaderSwitchTotal = vertexTotal = batchFlushTotal = 0;
+        drawCallMax = textureBindingMax = batchFlushMax = 0;
+    }
+
+    /**
+     * @return the draw calls of the last profiled frame - see {@link #setLogging(boolean)} and
+     * {@link #setOverlayVisible(boolean)}. The same goes for the other OpenGL counts.
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public int getTextureBindings() {
+        return textureBindings;
+    }
+
+    public int getShaderSwitches() {
+        return shaderSwitches;
+    }
+
+    /**
+     * @return every OpenGL call made in the last frame, not just draw calls
+     */
+    public int getGlCalls() {
+        return glCalls;
+    }
+
+    public int getVertices() {
+        return vertices;
+    }
+
+    /**
+     * @return how many times the shared SpriteBatch sent its sprites to the GPU in the last frame
+     */
+    public int getBatchFlushes() {
+        return batchFlushes;
+    }
+
+    public int getMaxSpritesInBatch() {
+        return maxSpritesInBatch;
+    }
+
+    /**
+     * Puts Gdx.gl back to the unwrapped GL if the profiler is enabled.
+     */
+    @Override
+    public void dispose() {
+        profiler.disable();
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.math.MathUtils;
+
+import static com.sonicgdx.TileMap.TILE_LENGTH;
+
+/**
+ * All the sensors of one entity, processed together in one pass by {@link #process()}.
+ * <p>
+ * Each sensor is an index into parallel arrays, rather than an object of its own, so that processing them only walks
+ * over a few small arrays. The results are written into arrays which are allocated once when the batch is created.
+ * An entity's sensors usually share a row or column - floor sensors are all at its bottom edge - so the rounding and
+ * the collision lookup of the previous sensor are reused when the next one is in the same place.
+ * <p>
+ * Positions can be given either as floats and processed with {@link #process()}, or as {@link Fixed} subpixels and
+ * processed with {@link #processFixed()}, which does everything in ints.
+ */
+public final class SensorBatch {
+
+    /**
+     * Sensors which point downwards and find the nearest top of a surface. If the sensor's tile is empty there, the
+     * tile below is checked (extension), and if it is full the tile above is checked (regression) - see
+     * {@link CollisionMap#getFloorSurfaceOffset(int, int)}.
+     */
+    public static final byte FLOOR = 0;
+    /**
+     * Sensors which point to the right and find the nearest wall, with the same extension into the tile in front and
+     * regression into the tile behind as floor sensors.
+     */
+    public static final byte WALL = 1;
+
+    private int size;
+    private final byte[] directions;
+    private final boolean[] active;
+    private final float[] xPositions, yPositions;
+    private final int[] fixedXPositions, fixedYPositions;
+    // Results of the last process(), see getDistance() and getTileIndex()
+    private final float[] distances;
+    private final int[] fixedDistances;
+    private final int[] tileIndices;
+
+    // The lookup of the last floor and wall sensor in the current process, reused while they stay the same
+    private int floorX, floorTileRow, floorSurfaceOffset;
+    private int wallY, wallTileColumn, wallSurfaceOffset, wallTileColumnFound;
+
+    /**
+     * @param capacity the most sensors that can be added
+     */
+    public SensorBatch(final int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity is " + capacity + " but must be positive");
+        directions = new byte[capacity];
+        active = new boolean[capacity];
+        xPositions = new float[capacity];
+        yPositions = new float[capacity];
+        fixedXPositions = new int[capacity];
+        fixedYPositions = new int[capacity];
+        distances = new float[capacity];
+        fixedDistances = new int[capacity];
+        tileIndices = new int[capacity];
+    }
+
+    /**
+     * Adds an inactive sensor at (0, 0).
+     * @param direction {@link #FLOOR} or {@link #WALL}
+     * @return the index used to refer to the new sensor
+     */
+    public int add(final byte direction) {
+        if (direction != FLOOR && direction != WALL) throw new IllegalArgumentException("direction is " + direction + " but must be FLOOR or WALL");
+        if (size == directions.length) throw new IllegalStateException("Cannot add more than " + directions.length + " sensors");
+        directions[size] = direction;
+        tileIndices[size] = -1;
+        return size++;
+    }
+
+    /**
+     * Finds the distance to the nearest surface and its tile for every active sensor, using the positions from
+     * {@link #setPosition(int, float, float)}. Inactive sensors keep the results they had before.
+     */
+    public void process() {
+        FrameProfiler.begin(FrameProfiler.Phase.SENSORS);
+        final CollisionMap collisionMap = TileMap.getCollisionMap();
+        resetLookups();
+        int probes = 0;
+
+        // The rounded co-ordinates of the last sensor, reused while they stay the same
+        float lastX = Float.NaN, lastY = Float.NaN;
+        int roundedX = 0, roundedY = 0;
+
+        for (int sensor = 0; sensor < size; sensor++) {
+            if (!active[sensor]) continue;
+            probes++;
+            final float x = xPositions[sensor], y = yPositions[sensor];
+
+            //The collision data has no negative indices, so sensors left of or below the map never find a surface
+            if (x < 0 || y < 0) {
+                tileIndices[sensor] = -1;
+                distances[sensor] = (directions[sensor] == FLOOR) ? -50 : 50;
+                continue;
+            }
+
+            if (x != lastX) {
+                lastX = x;
+                roundedX = MathUtils.round(x);
+            }
+            if (y != lastY) {
+                lastY = y;
+                roundedY = MathUtils.round(y);
+            }
+
+            final int surface = findSurface(sensor, roundedX, roundedY, collisionMap);
+            distances[sensor] = surface - ((directions[sensor] == FLOOR) ? y : x);
+        }
+        FrameProfiler.count(FrameProfiler.Counter.SENSOR_PROBES, probes);
+        FrameProfiler.end(FrameProfiler.Phase.SENSORS);
+    }
+
+    /**
+     * The same as {@link #process()} with only integer arithmetic, using the positions from
+     * {@link #setFixedPosition(int, int, int)}. The distances can be read with {@link #getFixedDistance(int)}, or as
+     * floats with {@link #getDistance(int)}.
+     */
+    public void processFixed() {
+        FrameProfiler.begin(FrameProfiler.Phase.SENSORS);
+        final CollisionMap collisionMap = TileMap.getCollisionMap();
+        resetLookups();
+        int probes = 0;
+
+        for (int sensor = 0; sensor < size; sensor++) {
+            if (!active[sensor]) continue;
+            probes++;
+            final int x = fixedXPositions[sensor], y = fixedYPositions[sensor];
+
+            if (x < 0 || y < 0) {
+                tileIndices[sensor] = -1;
+                fixedDistances[sensor] = Fixed.fromInt((directions[sensor] == FLOOR) ? -50 : 50);
+            }
+            else {
+                final int surface = findSurface(sensor, Fixed.round(x), Fixed.round(y), collisionMap);
+                fixedDistances[sensor] = Fixed.fromInt(surface) - ((directions[sensor] == FLOOR) ? y : x);
+            }
+            distances[sensor] = Fixed.toFloat(fixedDistances[sensor]);
+        }
+        FrameProfiler.count(FrameProfiler.Counter.SENSOR_PROBES, probes);
+        FrameProfiler.end(FrameProfiler.Phase.SENSORS);
+    }
+
+    private void resetLookups() {
+        floorX = -1;
+        floorTileRow = -1;
+        wallY = -1;
+        wallTileColumn = -1;
+    }
+
+    /**
+     * Finds the surface in front of a sensor at the given whole pixel position, and stores the index of its tile.
+     * @return the y co-ordinate of the surface for floor sensors, or its x co-ordinate for wall sensors
+     */
+    private int findSurface(final int sensor, final int roundedX, final int roundedY, final CollisionMap collisionMap) {
+        if (directions[sensor] == FLOOR) {
+            final int tileRow = roundedY / TILE_LENGTH;
+            if (roundedX != floorX || tileRow != floorTileRow) {
+                floorX = roundedX;
+                floorTileRow = tileRow;
+                floorSurfaceOffset = collisionMap.getFloorSurfaceOffset(roundedX, tileRow);
+            }
+            tileIndices[sensor] = collisionMap.getTileIndex(roundedX / TILE_LENGTH, CollisionMap.getFloorTileRow(tileRow, floorSurfaceOffset));
+            return (tileRow * TILE_LENGTH) + floorSurfaceOffset;
+        }
+
+        final int tileColumn = roundedX / TILE_LENGTH;
+        if (roundedY != wallY || tileColumn != wallTileColumn) {
+            wallY = roundedY;
+            wallTileColumn = tileColumn;
+            wallTileColumnFound = tileColumn;
+
+            //Offset of the surface from the right of tileColumn, after regression into the tile behind or extension into the one in front
+            int width = collisionMap.getWidth(roundedY, tileColumn);
+            wallSurfaceOffset = -width;
+            if (width == TILE_LENGTH) {
+                width = collisionMap.getWidth(roundedY, tileColumn - 1);
+                if (width > 0) {
+                    wallTileColumnFound--;
+                    wallSurfaceOffset -= width;
+                }
+            }
+            else if (width == 0) {
+                wallTileColumnFound++;
+                width = collisionMap.getWidth(roundedY, wallTileColumnFound);
+                wallSurfaceOffset = TILE_LENGTH - width;
+            }
+        }
+        tileIndices[sensor] = collisionMap.getTileIndex(wallTileColumnFound, roundedY / TILE_LENGTH);
+        return ((tileColumn + 1) * TILE_LENGTH) + wallSurfaceOffset;
+    }
+
+    public void setPosition(final int sensor, final float x, final float y) {
+        xPositions[sensor] = x;
+        yPositions[sensor] = y;
+    }
+
+    /**
+     * Sets the position used by {@link #processFixed()}, in {@link Fixed} subpixels.
+     */
+    public void setFixedPosition(final int sensor, final int x, final int y) {
+        fixedXPositions[sensor] = x;
+        fixedYPositions[sensor] = y;
+    }
+
+    public void setActive(final int sensor, final boolean active) {
+        this.active[sensor] = active;
+    }
+
+    public boolean isActive(final int sensor) {
+        return active[sensor];
+    }
+
+    public float getXPosition(final int sensor) {
+        return xPositions[sensor];
+    }
+
+    public float getYPosition(final int sensor) {
+        return yPositions[sensor];
+    }
+
+    /**
+     * @return how far the sensor's surface is from it, from the last time it was processed
+     */
+    public float getDistance(final int sensor) {
+        return distances[sensor];
+    }
+
+    /**
+     * @return the same as {@link #getDistance(int)} in {@link Fixed} subpixels. Only set by {@link #processFixed()}.
+     */
+    public int getFixedDistance(final int sensor) {
+        return fixedDistances[sensor];
+    }
+
+    /**
+     * @return the index of the tile found by the last process, used with the getters in {@link CollisionMap}.
+     * -1 if none was found.
+     */
+    public int getTileIndex(final int sensor) {
+        return tileIndices[sensor];
+    }
+
+    public short getTileId(final int sensor) {
+        return TileMap.getCollisionMap().getTileId(tileIndices[sensor]);
+    }
+
+    public int getTileAngle(final int sensor) {
+        return TileMap.getCollisionMap().getAngle(tileIndices[sensor]);
+    }
+
+    public Tile getTile(final int sensor) {
+        return TileMap.getCollisionMap().getTile(tileIndices[sensor]);
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+/**
+ * A PlayerInput which is controlled entirely by code instead of a keyboard or controller, for running the game without
+ * a backend (automated playthroughs, tests and benchmarks).
+ */
+public class SimulatedPlayerInput implements PlayerInput {
+    private int heldActions, pressedActions;
+
+    /**
+     * Replaces the held actions. Any which weren't held before also count as pressed.
+     */
+    public void setHeldActions(final int actions) {
+        pressedActions |= actions & ~heldActions;
+        heldActions = actions;
+    }
+
+    /**
+     * Presses the actions for the next step only, without holding them.
+     */
+    public void press(final int actions) {
+        pressedActions |= actions;
+    }
+
+    @Override
+    public int getHeldActions() {
+        return heldActions;
+    }
+
+    @Override
+    public int consumePressedActions() {
+        final int actions = pressedActions;
+        pressedActions = 0;
+        return actions;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+
+import java.util.Arrays;
+
+import static com.sonicgdx.TileMap.CHUNK_LENGTH;
+
+/**
+ * The broadphase for collisions between entities in an {@link EntityStore}. The world is split into square cells the
+ * size of a chunk, and each cell lists the entities whose bounding boxes overlap it, so a query only has to look at the
+ * entities in the cells it covers instead of every entity.
+ * <p>
+ * Cells are kept in a hash map keyed on their chunk co-ordinates, so only cells with entities in them take memory and
+ * entities outside the map still work. An entity is only moved between cells when its box overlaps different cells
+ * to before, which most steps it doesn't.
+ */
+final class SpatialGrid {
+
+    // The entities in each cell, by cellKey(). Emptied cells are kept for when something moves back into them.
+    private final IntMap<IntArray> cells = new IntMap<>();
+    // The range of cells (inclusive) each entity is listed in, indexed like the EntityStore
+    private int[] firstCellXs, lastCellXs, firstCellYs, lastCellYs;
+
+    SpatialGrid(final int initialCapacity) {
+        firstCellXs = new int[initialCapacity];
+        lastCellXs = new int[initialCapacity];
+        firstCellYs = new int[initialCapacity];
+        lastCellYs = new int[initialCapacity];
+    }
+
+    void grow(final int capacity) {
+        firstCellXs = Arrays.copyOf(firstCellXs, capacity);
+        lastCellXs = Arrays.copyOf(lastCellXs, capacity);
+        firstCellYs = Arrays.copyOf(firstCellYs, capacity);
+        lastCellYs = Arrays.copyOf(lastCellYs, capacity);
+    }
+
+    static int toCell(final float coordinate) {
+        return (int) Math.floor(coordinate / CHUNK_LENGTH);
+    }
+
+    /**
+     * Packs the cell co-ordinates into one int, which is unique for cells within 32768 chunks of the origin.
+     */
+    private static int cellKey(final int cellX, final int cellY) {
+        return (cellX << 16) | (cellY & 0xFFFF);
+    }
+
+    void insert(final int entity, final float left, final float right, final float bottom, final float top) {
+        firstCellXs[entity] = toCell(left);
+        lastCellXs[entity] = toCell(right);
+        firstCellYs[entity] = toCell(bottom);
+        lastCellYs[entity] = toCell(top);
+        forEachCell(entity, entity, true);
+    }
+
+    /**
+     * Moves the entity to the cells its new box overlaps, if they are different.
+     */
+    void move(final int entity, final float left, final float right, final float bottom, final float top) {
+        final int firstCellX = toCell(left), lastCellX = toCell(right), firstCellY = toCell(bottom), lastCellY = toCell(top);
+        if (firstCellX == firstCellXs[entity] && lastCellX == lastCellXs[entity]
+            && firstCellY == firstCellYs[entity] && lastCellY == lastCellYs[entity]) return;
+
+        forEachCell(entity, entity, false);
+        firstCellXs[entity] = firstCellX;
+        lastCellXs[entity] = lastCellX;
+        firstCellYs[entity] = firstCellY;
+        lastCellYs[entity] = lastCellY;
+        forEachCell(entity, entity, true);
+    }
+
+    /**
+     * Removes an entity, and then renames the entity at index moved to index entity - matching
+     * {@link EntityStore#remove(int)}.
+     */
+    void remove(final int entity, final int moved) {
+        forEachCell(entity, entity, false);
+        if (moved == entity) return;
+        forEachCell(moved, moved, false);
+        firstCellXs[entity] = firstCellXs[moved];
+        lastCellXs[entity] = lastCellXs[moved];
+        firstCellYs[entity] = firstCellYs[moved];
+        lastCellYs[entity] = lastCellYs[moved];
+        forEachCell(entity, entity, true);
+    }
+
+    void clear() {
+        for (final IntArray cell : cells.values()) cell.clear();
+    }
+
+    /**
+     * Adds or removes an index in every cell of an entity's range.
+     * @param rangeOf the entity whose range of cells is used
+     */
+    private void forEachCell(final int rangeOf, final int entity, final boolean add) {
+        for (int cellX = firstCellXs[rangeOf]; cellX <= lastCellXs[rangeOf]; cellX++) {
+            for (int cellY = firstCellYs[rangeOf]; cellY <= lastCellYs[rangeOf]; cellY++) {
+                final int key = cellKey(cellX, cellY);
+                IntArray cell = cells.get(key);
+                if (add) {
+                    if (cell == null) {
+                        cell = new IntArray(false, 8);
+                        cells.put(key, cell);
+                    }
+                    cell.add(entity);
+                }
+                else {
+                    //Order within a cell doesn't matter, so the last index fills the gap
+                    final int[] items = cell.items;
+                    for (int i = 0; i < cell.size; i++) {
+                        if (items[i] == entity) {
+                            items[i] = items[--cell.size];
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds every entity whose box overlaps the given box to results, each one once. Boxes which only touch at an edge
+     * overlap too.
+     */
+    void query(final EntityStore store, final float left, final float right, final float bottom, final float top, final IntArray results) {
+        final float[] leftEdges = store.getLeftEdges(), rightEdges = store.getRightEdges();
+        final float[] bottomEdges = store.getBottomEdges(), topEdges = store.getTopEdges();
+        final int firstCellX = toCell(left), lastCellX = toCell(right), firstCellY = toCell(bottom), lastCellY = toCell(top);
+
+        for (int cellX = firstCellX; cellX <= lastCellX; cellX++) {
+            for (int cellY = firstCellY; cellY <= lastCellY; cellY++) {
+                final IntArray cell = cells.get(cellKey(cellX, cellY));
+                if (cell == null) continue;
+                final int[] items = cell.items;
+                for (int i = 0; i < cell.size; i++) {
+                    final int entity = items[i];
+                    //An entity in several of the queried cells is only reported from the first of them
+                    if (cellX != Math.max(firstCellX, firstCellXs[entity]) || cellY != Math.max(firstCellY, firstCellYs[entity])) continue;
+                    if (leftEdges[entity] <= right && rightEdges[entity] >= left && bottomEdges[entity] <= top && topEdges[entity] >= bottom) {
+                        results.add(entity);
+                    }
+                }
+            }
+        }
+    }
+}
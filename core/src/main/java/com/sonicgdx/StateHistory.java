@@ -0,0 +1,175 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Snapshots of the simulation - the player, an {@link EntityStore} and the step they were taken at - written into
+ * reusable byte buffers, for rollback netcode and rewinding.
+ * <p>
+ * {@link #write(ByteBuffer, long, Player, EntityStore)} and {@link #read(ByteBuffer, Player, EntityStore)} work with
+ * any buffer. A StateHistory also keeps a ring buffer of the last few snapshots, with one buffer per snapshot which is
+ * reused once it is overwritten. Nothing is allocated unless a snapshot no longer fits in its buffer, which only
+ * happens when more entities have been added.
+ * <p>
+ * The level isn't copied, since the simulation never changes it. A snapshot only records the
+ * {@link TileMap#getRevision() TileMap's revision}, and can't be read once the map has been changed.
+ */
+public final class StateHistory {
+
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    private final Player player;
+    private final EntityStore entities;
+    private final ByteBuffer[] snapshots;
+    private final long[] steps;
+    // The slot of the newest snapshot, and how many slots before it (inclusive) hold snapshots
+    private int newest = -1, size;
+
+    /**
+     * @param capacity how many snapshots are kept before the oldest ones are overwritten
+     */
+    public StateHistory(final Player player, final EntityStore entities, final int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity is " + capacity + " but must be positive");
+        this.player = player;
+        this.entities = entities;
+        snapshots = new ByteBuffer[capacity];
+        steps = new long[capacity];
+        final int snapshotSize = getSnapshotSize(entities);
+        for (int slot = 0; slot < capacity; slot++) snapshots[slot] = ByteBuffer.allocate(snapshotSize * 2);
+    }
+
+    /**
+     * @return the number of bytes {@link #write(ByteBuffer, long, Player, EntityStore)} currently needs
+     */
+    public static int getSnapshotSize(final EntityStore entities) {
+        return HEADER_SIZE + Player.STATE_SIZE + entities.getStateSize();
+    }
+
+    /**
+     * Writes a snapshot at the buffer's position, and moves its position past it.
+     * @param step the step the simulation is at, which is given back by read()
+     */
+    public static void write(final ByteBuffer buffer, final long step, final Player player, final EntityStore entities) {
+        buffer.putInt(TileMap.getRevision());
+        buffer.putLong(step);
+        player.writeState(buffer);
+        entities.writeState(buffer);
+    }
+
+    /**
+     * Puts the player and entities back to how they were in a snapshot at the buffer's position, and moves its
+     * position past it.
+     * @return the step the snapshot was taken at
+     */
+    public static long read(final ByteBuffer buffer, final Player player, final EntityStore entities) {
+        final int revision = buffer.getInt();
+        if (revision != TileMap.getRevision()) throw new IllegalStateException("The snapshot was taken at TileMap revision " + revision + " but the map is now at revision " + TileMap.getRevision());
+        final long step = buffer.getLong();
+        player.readState(buffer);
+        entities.readState(buffer);
+        return step;
+    }
+
+    /**
+     * Takes a snapshot, overwriting the oldest one if the history is full.
+     * @param step the step the simulation is at, e.g. {@link HeadlessSimulation#getStepCount()}
+     */
+    public void save(final long step) {
+        newest = (newest + 1) % snapshots.length;
+        size = Math.min(size + 1, snapshots.length);
+
+        final int snapshotSize = getSnapshotSize(entities);
+        if (snapshots[newest].capacity() < snapshotSize) snapshots[newest] = ByteBuffer.allocate(snapshotSize * 2);
+        final ByteBuffer snapshot = snapshots[newest];
+        snapshot.clear();
+        write(snapshot, step, player, entities);
+        steps[newest] = step;
+    }
+
+    /**
+     * Goes back to the snapshot taken at a step, for rollback. Newer snapshots are dropped, but that one is kept so
+     * that it can be gone back to again.
+     * @return false if there is no snapshot of that step, in which case nothing changes
+     */
+    public boolean restore(final long step) {
+        for (int i = 0; i < size; i++) {
+            final int slot = getSlot(i);
+            if (steps[slot] != step) continue;
+            readSlot(slot);
+            newest = slot;
+            size -= i;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Goes back to the newest snapshot and drops it, so that calling this repeatedly keeps going further back.
+     * @return the step the simulation is now at, or -1 if there were no snapshots left
+     */
+    public long rewind() {
+        if (size == 0) return -1;
+        final long step = readSlot(newest);
+        newest = (newest + snapshots.length - 1) % snapshots.length;
+        size--;
+        return step;
+    }
+
+    private long readSlot(final int slot) {
+        final ByteBuffer snapshot = snapshots[slot];
+        snapshot.rewind();
+        return read(snapshot, player, entities);
+    }
+
+    /**
+     * @param age 0 for the newest snapshot, 1 for the one before it and so on
+     */
+    private int getSlot(final int age) {
+        return (newest - age + snapshots.length) % snapshots.length;
+    }
+
+    public void clear() {
+        newest = -1;
+        size = 0;
+    }
+
+    /**
+     * @return the number of snapshots currently kept
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return snapshots.length;
+    }
+
+    /**
+     * @return the step of the oldest snapshot kept, which is the furthest back the simulation can go
+     */
+    public long getOldestStep() {
+        if (size == 0) throw new IllegalStateException("There are no snapshots");
+        return steps[getSlot(size - 1)];
+    }
+
+    public long getNewestStep() {
+        if (size == 0) throw new IllegalStateException("There are no snapshots");
+        return steps[newest];
+    }
+}
@@ -16,91 +16,55 @@
 
 package com.sonicgdx;
 
-import java.util.Arrays;
-import java.util.Objects;
-
-import static com.sonicgdx.TileMap.TILE_LENGTH;
-
 /**
- * An almost-immutable data class which contains the collision data of a tile.
- * The arrays are not, but they are not exposed (only values of elements of it are)
+ * An immutable handle to the collision data of a tile which has been interned in a {@link TileRegistry}.
+ * Only the registry creates Tiles (one for every tile ID), so comparing two Tiles only compares their IDs.
  */
 public class Tile {
 
-    private final int[] heightArray, widthArray;
-    private final float angle;
-    private final boolean flippedHorizontally, flippedVertically;
-    /**
-     * 0 = solid from top, 1 = solid from bottom, 2 = solid from left, 3 = solid from right, 4 = solid from all sides
-     */
-    private final int solidity;
-
-    private final boolean empty;
-
-    Tile(final int[] heightArray,
-         final int[] widthArray,
-         final float angle,
-         final int solidity,
-         final boolean flippedHorizontally,
-         final boolean flippedVertically) {
-
-        this.empty = false;
-
-        if (heightArray.length == TILE_LENGTH) this.heightArray = heightArray;
-        else throw new IllegalArgumentException("heightArray Length is " +  heightArray.length + " instead of " + TILE_LENGTH);
-        if (widthArray.length == TILE_LENGTH) this.widthArray = widthArray;
-        else throw new IllegalArgumentException("heightArray Length is " +  widthArray.length + " instead of " + TILE_LENGTH);
+    private final TileRegistry registry;
+    private final short id;
 
-        this.angle = angle;
-        this.flippedHorizontally = flippedHorizontally;
-        this.flippedVertically = flippedVertically;
-        this.solidity = solidity;
-    }
-    Tile() {
-        this.empty = true;
-        //initialize arrays to simulate "empty" tile with no collision
-        this.heightArray = new int[TILE_LENGTH];
-        Arrays.fill(heightArray, 0);
-        this.widthArray = new int[TILE_LENGTH];
-        Arrays.fill(widthArray, 0);
-        this.flippedHorizontally = false;
-        this.flippedVertically = false;
-        this.angle = 0;
-        this.solidity = 0;
+    Tile(final TileRegistry registry, final short id) {
+        this.registry = registry;
+        this.id = id;
     }
 
     public int getHeight(final int block) {
-        if (empty || block < 0 || TILE_LENGTH - 1 < block) return 0;
-        else {
-            return heightArray[block];
-        }
-
+        return registry.getHeight(id, block);
     }
     public int getWidth(final int block) {
-        if (empty || block < 0 || TILE_LENGTH - 1 < block ) return 0;
-        else {
-            return widthArray[block];
-        }
+        return registry.getWidth(id, block);
     }
 
+    /**
+     * @return 0 = solid from top, 1 = solid from bottom, 2 = solid from left, 3 = solid from right, 4 = solid from all sides
+     */
     public int getSolidity() {
-        return solidity;
+        return registry.getSolidity(id);
     }
 
-    public float getAngle() {
-        return angle;
+    /**
+     * @return the angle of the surface in 256-step {@link Angle} format
+     */
+    public int getAngle() {
+        return registry.getAngle(id);
     }
 
     public boolean isEmpty() {
-        return empty;
+        return registry.isEmpty(id);
     }
 
     public boolean isFlippedHorizontally() {
-        return flippedHorizontally;
+        return registry.isFlippedHorizontally(id);
     }
 
     public boolean isFlippedVertically() {
-        return flippedVertically;
+        return registry.isFlippedVertically(id);
+    }
+
+    public short getId() {
+        return id;
     }
 
     @Override
@@ -109,25 +73,11 @@ public class Tile {
         //note that an object of this class can NOT be equal to an object of a subclass
         if (o == null || getClass() != o.getClass()) return false;
         final Tile t = (Tile) o;
-        return Float.compare(angle, t.angle) == 0
-            && flippedHorizontally == t.flippedHorizontally
-            && flippedVertically == t.flippedVertically
-            && solidity == t.solidity
-            && empty == t.empty
-            && Objects.deepEquals(heightArray, t.heightArray)
-            && Objects.deepEquals(widthArray, t.widthArray);
+        return id == t.id && registry == t.registry;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(
-            Arrays.hashCode(heightArray),
-            Arrays.hashCode(widthArray),
-            angle,
-            flippedHorizontally,
-            flippedVertically,
-            solidity,
-            empty
-        );
+        return id;
     }
 }
@@ -16,11 +16,8 @@
 
 package com.sonicgdx;
 
-import com.badlogic.gdx.Application;
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Texture;
 
-import java.util.Collections;
+import java.util.Arrays;
 
 public enum TileMap {
 
@@ -29,150 +26,288 @@ public enum TileMap {
     // solid blocks
     //TODO reconsider usage of TileMap class
 
-    public static final Chunk[][] map = INSTANCE.testLevel;
     public static final int TILE_LENGTH = 16;
     public static final int CHUNK_LENGTH = 96;
     public static final int TILES_PER_CHUNK = CHUNK_LENGTH / TILE_LENGTH;
 
-    // Classes are reference types so modifying a value would affect all the tiles that are the same.
-    private final int[] zero = {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0};
-    private final int[] slope = {1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16};
-    private final int[] full = {16,16,16,16,16,16,16,16,16,16,16,16,16,16,16,16};
-    private final int[] halfh = {8,8,8,8,8,8,8,8,8,8,8,8,8,8,8,8}; private final int[] halfw = {0,0,0,0,0,0,0,0,16,16,16,16,16,16,16,16};
-    private final int[] rvSlope = {16,15,14,13,12,11,10,9,8,7,6,5,4,3,2,1};
-    private final int[] tall1 = {1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1};
-    private final int[] testh = {0,0,1,2,2,3,4,5,5,6,6,7,8,9,9,9}, testw = {0,0,0,0,0,0,0,3,4,5,7,9,10,11,13,14};
-    private final Tile EMPTY = new Tile();
-    private final Tile ftile = new Tile(full,full,0,4,false,false);
-    private final Tile stile = new Tile(slope, slope,45,1,false,false);
-    private final Tile rvtile = new Tile(rvSlope, slope,-45,1,true,false);
-    private final Tile htile = new Tile(halfh,halfw,0,1,false,false);
-    private final Tile testtile = new Tile(testh,testw,33.75F,1,false,false);
-
-    private final Chunk fChunk = new Chunk(new Texture(Gdx.files.internal("sprites/AIZ2/95.png")),Collections.nCopies(TILES_PER_CHUNK,Collections.nCopies(TILES_PER_CHUNK,ftile).toArray(new Tile[0])).toArray(new Tile[0][0]));
-
-    public final Tile[][] emptyTileArray = Collections.nCopies(TILES_PER_CHUNK,Collections.nCopies(TILES_PER_CHUNK,EMPTY).toArray(new Tile[0])).toArray(new Tile[0][0]);
-
-    private final Chunk hChunk = new Chunk(new Texture(Gdx.files.internal("sprites/AIZ2/176.png")),new Tile[][]{
-            {ftile,ftile,htile},
-            {ftile,ftile,htile},
-            {ftile,ftile,htile},
-            {ftile,ftile,htile},
-            {ftile,ftile,htile},
-            {ftile,ftile,htile}});
-    private final Chunk rvChunk = new Chunk(new Texture(Gdx.files.internal("sprites/AIZ2/130.png")),new Tile[][]{
-            {ftile,ftile,ftile,ftile,ftile,rvtile,},
-            {ftile,ftile,ftile,ftile,rvtile,EMPTY},
-            {ftile,ftile,ftile,rvtile,EMPTY,EMPTY},
-            {ftile,ftile,rvtile,EMPTY,EMPTY,EMPTY},
-            {ftile,rvtile,EMPTY,EMPTY,EMPTY,EMPTY},
-            {rvtile,EMPTY,EMPTY,EMPTY,EMPTY,EMPTY}});
-
-    private final Chunk sChunk =
-        new Chunk(new Texture(Gdx.files.internal("sprites/AIZ2/65.png")),new Tile[][]{
-                    {stile,EMPTY,EMPTY,EMPTY,EMPTY,EMPTY},
-                    {ftile,stile,EMPTY,EMPTY,EMPTY,EMPTY},
-                    {ftile,ftile,stile,EMPTY,EMPTY,EMPTY},
-                    {ftile,ftile,ftile,stile,EMPTY,EMPTY},
-                    {ftile,ftile,ftile,ftile,stile,EMPTY},
-                    {ftile,ftile,ftile,ftile,ftile,stile}});
-
-
-    private final Chunk emptyChunk = new Chunk(emptyTileArray);
-    private final Chunk[][] testMap =
+    // Returned for indices outside the map
+    private static final Chunk EMPTY_CHUNK = new Chunk(filledTileIdGrid(TileRegistry.EMPTY_TILE_ID));
+
+    // The level the chunks are read from, or null for the built-in test level
+    private static Level level;
+    // Null until a level is loaded or the map is first used, at which point the built-in test level is loaded.
+    // The chunks of a Level are only read from it when they are first asked for, so this is filled in as they are.
+    private static Chunk[][] map;
+    private static int heightInChunks;
+    private static TileRegistry tileRegistry;
+    // Sensors use this instead of getTile() for their probes
+    private static CollisionMap collisionMap;
+    // Incremented whenever the map or a chunk in it is replaced, so that anything built from the map knows to rebuild
+    private static int revision = 0;
+
+    /**
+     * The level used until another one is loaded. Only created if the map is used before that.
+     */
+    private static final class TestLevel {
+        // Shapes are interned by the registry, so tiles with the same collision data share one ID
+        private final TileRegistry testTileRegistry = new TileRegistry();
+
+        private final int[] zero = {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0};
+        private final int[] slope = {1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16};
+        private final int[] full = {16,16,16,16,16,16,16,16,16,16,16,16,16,16,16,16};
+        private final int[] halfh = {8,8,8,8,8,8,8,8,8,8,8,8,8,8,8,8}; private final int[] halfw = {0,0,0,0,0,0,0,0,16,16,16,16,16,16,16,16};
+        private final int[] tall1 = {1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1};
+        private final int[] testh = {0,0,1,2,2,3,4,5,5,6,6,7,8,9,9,9}, testw = {0,0,0,0,0,0,0,3,4,5,7,9,10,11,13,14};
+        private final short EMPTY = TileRegistry.EMPTY_TILE_ID;
+        private final short ftile = testTileRegistry.register(full,full,0,4);
+        private final short stile = testTileRegistry.register(slope, slope,45,1);
+        // The same shape as stile, mirrored - the registry reads its height array in reverse instead of storing a copy
+        private final short rvtile = testTileRegistry.flip(stile,true,false);
+        private final short htile = testTileRegistry.register(halfh,halfw,0,1);
+        private final short testtile = testTileRegistry.register(testh,testw,33.75F,1);
+
+        private final Chunk fChunk = new Chunk("95",filledTileIdGrid(ftile));
+
+        private final Chunk hChunk = new Chunk("176",new short[][]{
+                {ftile,ftile,htile},
+                {ftile,ftile,htile},
+                {ftile,ftile,htile},
+                {ftile,ftile,htile},
+                {ftile,ftile,htile},
+                {ftile,ftile,htile}});
+        private final Chunk rvChunk = new Chunk("130",new short[][]{
+                {ftile,ftile,ftile,ftile,ftile,rvtile,},
+                {ftile,ftile,ftile,ftile,rvtile,EMPTY},
+                {ftile,ftile,ftile,rvtile,EMPTY,EMPTY},
+                {ftile,ftile,rvtile,EMPTY,EMPTY,EMPTY},
+                {ftile,rvtile,EMPTY,EMPTY,EMPTY,EMPTY},
+                {rvtile,EMPTY,EMPTY,EMPTY,EMPTY,EMPTY}});
+
+        private final Chunk sChunk =
+            new Chunk("65",new short[][]{
+                        {stile,EMPTY,EMPTY,EMPTY,EMPTY,EMPTY},
+                        {ftile,stile,EMPTY,EMPTY,EMPTY,EMPTY},
+                        {ftile,ftile,stile,EMPTY,EMPTY,EMPTY},
+                        {ftile,ftile,ftile,stile,EMPTY,EMPTY},
+                        {ftile,ftile,ftile,ftile,stile,EMPTY},
+                        {ftile,ftile,ftile,ftile,ftile,stile}});
+
+
+        private final Chunk emptyChunk = new Chunk(filledTileIdGrid(EMPTY));
+        private final Chunk[][] testMap =
+                {
+                        {sChunk, emptyChunk, emptyChunk, emptyChunk},
+                        {fChunk, emptyChunk, emptyChunk, emptyChunk},
+                        {fChunk, emptyChunk, emptyChunk, emptyChunk},
+                        {fChunk, emptyChunk, emptyChunk, emptyChunk},
+                        {emptyChunk, emptyChunk, emptyChunk, emptyChunk},
+                        {emptyChunk,fChunk, emptyChunk, emptyChunk},
+                        {emptyChunk, emptyChunk, emptyChunk, emptyChunk},
+                        {fChunk, emptyChunk, emptyChunk, emptyChunk},
+                        {fChunk, emptyChunk, emptyChunk, emptyChunk},
+                        {fChunk, emptyChunk, emptyChunk, emptyChunk},
+                        {fChunk, emptyChunk, emptyChunk, emptyChunk},
+                        {fChunk,fChunk, emptyChunk, emptyChunk},
+                        {fChunk, emptyChunk, emptyChunk, emptyChunk},
+                        {rvChunk, emptyChunk, emptyChunk, emptyChunk}
+
+                };
+
+        private final Chunk[][] testLevel =
             {
-                    {sChunk, emptyChunk, emptyChunk, emptyChunk},
-                    {fChunk, emptyChunk, emptyChunk, emptyChunk},
-                    {fChunk, emptyChunk, emptyChunk, emptyChunk},
-                    {fChunk, emptyChunk, emptyChunk, emptyChunk},
-                    {emptyChunk, emptyChunk, emptyChunk, emptyChunk},
-                    {emptyChunk,fChunk, emptyChunk, emptyChunk},
-                    {emptyChunk, emptyChunk, emptyChunk, emptyChunk},
-                    {fChunk, emptyChunk, emptyChunk, emptyChunk},
-                    {fChunk, emptyChunk, emptyChunk, emptyChunk},
-                    {fChunk, emptyChunk, emptyChunk, emptyChunk},
-                    {fChunk, emptyChunk, emptyChunk, emptyChunk},
-                    {fChunk,fChunk, emptyChunk, emptyChunk},
-                    {fChunk, emptyChunk, emptyChunk, emptyChunk},
-                    {rvChunk, emptyChunk, emptyChunk, emptyChunk}
+                {sChunk},
+                {fChunk},
+                {fChunk},
+                {fChunk},
+                {emptyChunk},
+                {emptyChunk,fChunk},
+                {emptyChunk},
+                {fChunk},
+                {fChunk},
+                {fChunk},
+                {fChunk},
+                {fChunk,fChunk},
+                {fChunk,fChunk},
+                {emptyChunk,rvChunk, emptyChunk, emptyChunk, emptyChunk, fChunk},
+                {fChunk, emptyChunk, emptyChunk, emptyChunk, emptyChunk, fChunk},
+                {emptyChunk,sChunk, emptyChunk,hChunk,fChunk},
+                {emptyChunk, emptyChunk, emptyChunk,hChunk},
+                {emptyChunk, emptyChunk,rvChunk},
+                {emptyChunk,rvChunk},
+                {emptyChunk,sChunk},
+                {emptyChunk, emptyChunk,sChunk},
+                {emptyChunk},
+                {emptyChunk},
+                {emptyChunk},
+                {emptyChunk},
+                {hChunk}
 
-            };
 
-    private final Chunk[][] testLevel =
-        {
-            {sChunk},
-            {fChunk},
-            {fChunk},
-            {fChunk},
-            {emptyChunk},
-            {emptyChunk,fChunk},
-            {emptyChunk},
-            {fChunk},
-            {fChunk},
-            {fChunk},
-            {fChunk},
-            {fChunk,fChunk},
-            {fChunk,fChunk},
-            {emptyChunk,rvChunk, emptyChunk, emptyChunk, emptyChunk, fChunk},
-            {fChunk, emptyChunk, emptyChunk, emptyChunk, emptyChunk, fChunk},
-            {emptyChunk,sChunk, emptyChunk,hChunk,fChunk},
-            {emptyChunk, emptyChunk, emptyChunk,hChunk},
-            {emptyChunk, emptyChunk,rvChunk},
-            {emptyChunk,rvChunk},
-            {emptyChunk,sChunk},
-            {emptyChunk, emptyChunk,sChunk},
-            {emptyChunk},
-            {emptyChunk},
-            {emptyChunk},
-            {emptyChunk},
-            {hChunk}
-
-
-
-        };
 
-    public static Tile getTile(final int chunkX, final int chunkY, final int tileX, final int tileY) {
-        if(0 <= tileX && 0 <= tileY && !isChunkEmpty(chunkX,chunkY)) {
-            if (tileX < map[chunkX][chunkY].getTileArray().length && tileY < map[chunkX][chunkY].getTileArray()[tileX].length)
-                return map[chunkX][chunkY].getTileArray()[tileX][tileY];
-            else return INSTANCE.EMPTY;
-        }
-        else return INSTANCE.EMPTY;
-        //OLD try catch version
-        /*try {
-            return map[chunkX][chunkY][tileX][tileY];
-        }
-        catch (ArrayIndexOutOfBoundsException e){
-            //Gdx.app.error("getTile() Error",String.valueOf(e));
-            //e.printStackTrace();
-            return INSTANCE.EMPTY;
-        }*/
+            };
+    }
 
+    public static Tile getTile(final int chunkX, final int chunkY, final int tileX, final int tileY) {
+        FrameProfiler.count(FrameProfiler.Counter.TILE_LOOKUPS);
+        return getTileRegistry().getTile(getTileId(chunkX,chunkY,tileX,tileY));
+    }
 
+    /**
+     * @return the ID of the tile at these co-ordinates, or the empty tile's ID if they are out of range.
+     * @see TileRegistry
+     */
+    public static short getTileId(final int chunkX, final int chunkY, final int tileX, final int tileY) {
+        if (0 <= tileX && 0 <= tileY && tileX < TILES_PER_CHUNK && tileY < TILES_PER_CHUNK) {
+            final Chunk chunk = getChunk(chunkX,chunkY);
+            if (!chunk.isEmpty()) return chunk.getTileId(tileX,tileY);
+        }
+        return TileRegistry.EMPTY_TILE_ID;
     }
 
     /**
      * @param chunkX the index used to get a Chunk[] from the TileMap
      * @param chunkY the index used to get a Chunk from the array given by map[tileX]
-     * @return the respective Chunk in the Chunk array
+     * @return the respective Chunk in the Chunk array, read from the level if this is the first time it has been asked for
      * <p>
      * An empty chunk if the co-ordinates are out of range for the array.
      */
     public static Chunk getChunk(final int chunkX, final int chunkY) {
+        if (map == null) loadTestLevel();
         if (chunkX < 0 || chunkX >= map.length || chunkY < 0 || chunkY >= map[chunkX].length) {
-            return INSTANCE.emptyChunk;
+            return EMPTY_CHUNK;
+        }
+
+        Chunk chunk = map[chunkX][chunkY];
+        if (chunk == null) {
+            //The level only creates each chunk definition once, so chunks used several times are the same object
+            chunk = level.getChunk(chunkX, chunkY);
+            map[chunkX][chunkY] = chunk;
         }
+        return chunk;
+    }
+
+    /**
+     * Unlike {@link #getChunk(int, int)}, this doesn't read the chunk from the level if it hasn't been used yet.
+     * @return the name of the chunk's region in the chunk atlas, or null if it doesn't have one or the co-ordinates
+     * are out of range
+     */
+    public static String getTextureName(final int chunkX, final int chunkY) {
+        if (map == null) loadTestLevel();
+        if (chunkX < 0 || chunkX >= map.length || chunkY < 0 || chunkY >= map[chunkX].length) return null;
 
-        return map[chunkX][chunkY];
+        final Chunk chunk = map[chunkX][chunkY];
+        return (chunk != null) ? chunk.getTextureName() : level.getTextureName(chunkX, chunkY);
     }
 
     public static boolean isChunkEmpty(final int chunkX, final int chunkY) {
         return getChunk(chunkX,chunkY).isEmpty();
     }
 
+    /**
+     * Replaces the chunk at these indices and updates the collision data to match.
+     * The map's size can't be changed, so the indices must already contain a chunk.
+     * @param chunk a chunk whose tile IDs are from {@link #getTileRegistry()}
+     */
+    public static void setChunk(final int chunkX, final int chunkY, final Chunk chunk) {
+        if (map == null) loadTestLevel();
+        if (chunkX < 0 || chunkX >= map.length || chunkY < 0 || chunkY >= map[chunkX].length) {
+            throw new IllegalArgumentException("There is no chunk at (" + chunkX + ", " + chunkY + ") to replace");
+        }
+        map[chunkX][chunkY] = chunk;
+        collisionMap.updateChunk(chunkX, chunkY, chunk);
+        revision++;
+    }
+
+    /**
+     * @return a number which changes every time the map is modified with {@link #setChunk(int, int, Chunk)} or
+     * replaced with {@link #load(Level)}.
+     */
+    public static int getRevision() {
+        return revision;
+    }
+
     public static Tile getEmptyTile()
     {
-        return INSTANCE.EMPTY;
+        return getTileRegistry().getTile(TileRegistry.EMPTY_TILE_ID);
+    }
+
+    public static TileRegistry getTileRegistry() {
+        if (map == null) loadTestLevel();
+        return tileRegistry;
+    }
+
+    /**
+     * @return the number of columns of chunks in the map
+     */
+    public static int getWidthInChunks() {
+        if (map == null) loadTestLevel();
+        return map.length;
+    }
+
+    /**
+     * @return the number of chunks in the tallest column of the map
+     */
+    public static int getHeightInChunks() {
+        if (map == null) loadTestLevel();
+        return heightInChunks;
+    }
+
+    /**
+     * @return the number of chunks in this column of the map, which can be different for each column. 0 if the
+     * column is outside the map.
+     */
+    public static int getColumnHeight(final int chunkX) {
+        if (map == null) loadTestLevel();
+        if (chunkX < 0 || chunkX >= map.length) return 0;
+        return map[chunkX].length;
+    }
+
+    /**
+     * Replaces the current level (initially the built-in test level) with one read from a level file.
+     * Its chunks are only read when they are first used, and the map doesn't load any textures, so that it can also
+     * be used without graphics - see {@link ChunkTextureResidency}.
+     */
+    public static void load(final Level level) {
+        final Chunk[][] grid = new Chunk[level.getWidthInChunks()][];
+        for (int chunkX = 0; chunkX < grid.length; chunkX++) grid[chunkX] = new Chunk[level.getColumnHeight(chunkX)];
+        setLevel(level, grid, level.getMaxColumnHeight(), level.getTileRegistry());
+        revision++;
+    }
+
+    /**
+     * Only called if the map is used before a level has been loaded, so that the test level isn't built otherwise.
+     */
+    private static void loadTestLevel() {
+        final TestLevel testLevel = new TestLevel();
+        int testLevelHeight = 0;
+        for (final Chunk[] chunkColumn : testLevel.testLevel) testLevelHeight = Math.max(testLevelHeight, chunkColumn.length);
+        setLevel(null, testLevel.testLevel, testLevelHeight, testLevel.testTileRegistry);
+    }
+
+    private static void setLevel(final Level level, final Chunk[][] map, final int heightInChunks, final TileRegistry tileRegistry) {
+        TileMap.level = level;
+        TileMap.map = map;
+        TileMap.heightInChunks = heightInChunks;
+        TileMap.tileRegistry = tileRegistry;
+        collisionMap = new CollisionMap(map.length, heightInChunks, tileRegistry);
+    }
+
+    /**
+     * @return a tile ID grid for a Chunk where every tile has the same ID
+     */
+    private static short[][] filledTileIdGrid(final short tileId) {
+        final short[][] tileIdGrid = new short[TILES_PER_CHUNK][TILES_PER_CHUNK];
+        for (final short[] column : tileIdGrid) Arrays.fill(column, tileId);
+        return tileIdGrid;
+    }
+
+    /**
+     * @return the flattened collision data of the map
+     * @see CollisionMap
+     */
+    public static CollisionMap getCollisionMap() {
+        if (map == null) loadTestLevel();
+        return collisionMap;
     }
 
     /*@Deprecated
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.sonicgdx.TileMap.TILE_LENGTH;
+
+/**
+ * Stores every distinct collision shape used by the level exactly once and refers to them by a compact tile ID.
+ * <p>
+ * The lowest two bits of an ID say whether the shape is flipped horizontally and/or vertically, and the rest of the
+ * bits are the index of the shape. Flipped tiles therefore never need their own mirrored arrays - the index into the
+ * shape's arrays is mirrored instead when it is read. Since shapes are interned, two tiles have the same collision
+ * data exactly when their IDs are the same.
+ * <p>
+ * ID 0 is always the empty tile.
+ */
+public final class TileRegistry {
+
+    public static final short EMPTY_TILE_ID = 0;
+
+    static final int FLIPPED_HORIZONTALLY = 1, FLIPPED_VERTICALLY = 2;
+    private static final int FLIP_BITS = 2, VARIANTS_PER_SHAPE = 1 << FLIP_BITS;
+    /**
+     * The largest number of shapes that can be given a non-negative short ID.
+     */
+    public static final int MAX_SHAPES = (Short.MAX_VALUE + 1) >> FLIP_BITS;
+
+    private int shapeCount;
+
+    // Indexed by (shape * TILE_LENGTH) + block
+    private byte[] heights, widths;
+    // Indexed by tile ID, so that flipped variants don't need to be calculated every time they are read.
+    // Angles are in 256-step Angle format.
+    private byte[] angles;
+    private byte[] solidities;
+    private Tile[] tiles;
+
+    private final Map<ShapeKey, Integer> shapeIndices = new HashMap<>();
+
+    public TileRegistry() {
+        final int initialCapacity = 16;
+        heights = new byte[initialCapacity * TILE_LENGTH];
+        widths = new byte[initialCapacity * TILE_LENGTH];
+        angles = new byte[initialCapacity * VARIANTS_PER_SHAPE];
+        solidities = new byte[initialCapacity * VARIANTS_PER_SHAPE];
+        tiles = new Tile[initialCapacity * VARIANTS_PER_SHAPE];
+
+        //Shape 0 has no collision at all and is used for the empty tile.
+        final int[] zero = new int[TILE_LENGTH];
+        if (register(zero, zero, 0, 0) != EMPTY_TILE_ID) throw new AssertionError("The empty tile must have ID 0");
+    }
+
+    /**
+     * Adds a collision shape to the registry if it hasn't been added already.
+     * @param heightArray heights of each column in the tile from left to right, each between 0 and {@link TileMap#TILE_LENGTH}
+     * @param widthArray widths of each row in the tile, each between 0 and {@link TileMap#TILE_LENGTH}
+     * @param angle the angle of the surface in degrees, or 360 for a {@link Angle#FLAGGED flagged} tile. It is stored
+     *              as the nearest {@link Angle} step.
+     * @param solidity 0 = solid from top, 1 = solid from bottom, 2 = solid from left, 3 = solid from right, 4 = solid from all sides
+     * @return the ID of the (not flipped) tile with this shape
+     */
+    public short register(final int[] heightArray, final int[] widthArray, final float angle, final int solidity) {
+        final byte[] heightBytes = toCollisionBytes(heightArray, "heightArray");
+        final byte[] widthBytes = toCollisionBytes(widthArray, "widthArray");
+        if (solidity < 0 || 4 < solidity) throw new IllegalArgumentException("solidity is " + solidity + " but must be between 0 and 4");
+
+        final int steps = Angle.fromDegrees(angle);
+        final ShapeKey key = new ShapeKey(heightBytes, widthBytes, steps, solidity);
+        final Integer existingShape = shapeIndices.get(key);
+        if (existingShape != null) return toId(existingShape, 0);
+
+        if (shapeCount == MAX_SHAPES) throw new IllegalStateException("Cannot register more than " + MAX_SHAPES + " tile shapes");
+        if (shapeCount * TILE_LENGTH == heights.length) grow();
+
+        final int shape = shapeCount++;
+        System.arraycopy(heightBytes, 0, heights, shape * TILE_LENGTH, TILE_LENGTH);
+        System.arraycopy(widthBytes, 0, widths, shape * TILE_LENGTH, TILE_LENGTH);
+
+        for (int flip = 0; flip < VARIANTS_PER_SHAPE; flip++) {
+            final int id = toId(shape, flip);
+            angles[id] = (byte) flipAngle(steps, flip);
+            solidities[id] = (byte) flipSolidity(solidity, flip);
+        }
+
+        shapeIndices.put(key, shape);
+        return toId(shape, 0);
+    }
+
+    /**
+     * @return the ID of the tile with the same shape as tileId, flipped on the given axes (relative to tileId, so
+     * flipping a flipped tile again restores it). The empty tile is never flipped.
+     */
+    public short flip(final short tileId, final boolean horizontally, final boolean vertically) {
+        if (isEmpty(tileId)) return EMPTY_TILE_ID;
+        int flip = 0;
+        if (horizontally) flip |= FLIPPED_HORIZONTALLY;
+        if (vertically) flip |= FLIPPED_VERTICALLY;
+        return (short) (tileId ^ flip);
+    }
+
+    /**
+     * @param block the column of the tile, from the left
+     * @return the height of that column, or 0 if block is outside the tile
+     */
+    public int getHeight(final short tileId, final int block) {
+        if (block < 0 || TILE_LENGTH - 1 < block) return 0;
+        //Horizontally flipped tiles read their columns from the right instead
+        final int column = (tileId & FLIPPED_HORIZONTALLY) == 0 ? block : TILE_LENGTH - 1 - block;
+        return heights[(getShape(tileId) * TILE_LENGTH) + column];
+    }
+
+    /**
+     * @param block the row of the tile
+     * @return the width of that row, or 0 if block is outside the tile
+     */
+    public int getWidth(final short tileId, final int block) {
+        if (block < 0 || TILE_LENGTH - 1 < block) return 0;
+        //Vertically flipped tiles read their rows in the opposite order instead
+        final int row = (tileId & FLIPPED_VERTICALLY) == 0 ? block : TILE_LENGTH - 1 - block;
+        return widths[(getShape(tileId) * TILE_LENGTH) + row];
+    }
+
+    /**
+     * @return the angle of the surface in 256-step {@link Angle} format
+     */
+    public int getAngle(final short tileId) {
+        return angles[tileId] & 0xFF;
+    }
+
+    public int getSolidity(final short tileId) {
+        return solidities[tileId];
+    }
+
+    public boolean isEmpty(final short tileId) {
+        return getShape(tileId) == 0;
+    }
+
+    public boolean isFlippedHorizontally(final short tileId) {
+        return (tileId & FLIPPED_HORIZONTALLY) != 0;
+    }
+
+    public boolean isFlippedVertically(final short tileId) {
+        return (tileId & FLIPPED_VERTICALLY) != 0;
+    }
+
+    /**
+     * @return the Tile for this ID. Only one Tile is created per ID so they can also be compared by reference.
+     */
+    public Tile getTile(final short tileId) {
+        if (getShape(tileId) >= shapeCount) throw new IllegalArgumentException("No tile has been registered with ID " + tileId);
+        Tile tile = tiles[tileId];
+        if (tile == null) {
+            tile = new Tile(this, tileId);
+            tiles[tileId] = tile;
+        }
+        return tile;
+    }
+
+    public int getShapeCount() {
+        return shapeCount;
+    }
+
+    static int getShape(final short tileId) {
+        return tileId >> FLIP_BITS;
+    }
+
+    /**
+     * @param shape index of a registered shape, from 0 to getShapeCount() - 1
+     * @param flip any combination of FLIPPED_HORIZONTALLY and FLIPPED_VERTICALLY
+     */
+    static short toId(final int shape, final int flip) {
+        return (short) ((shape << FLIP_BITS) | flip);
+    }
+
+    private static int flipAngle(final int angle, final int flip) {
+        int flippedAngle = angle;
+        if ((flip & FLIPPED_HORIZONTALLY) != 0) flippedAngle = Angle.flipHorizontally(flippedAngle);
+        if ((flip & FLIPPED_VERTICALLY) != 0) flippedAngle = Angle.flipVertically(flippedAngle);
+        return flippedAngle;
+    }
+
+    private static int flipSolidity(final int solidity, final int flip) {
+        //top and bottom swap when flipped vertically, left and right swap when flipped horizontally
+        if ((flip & FLIPPED_VERTICALLY) != 0 && solidity <= 1) return 1 - solidity;
+        if ((flip & FLIPPED_HORIZONTALLY) != 0 && (solidity == 2 || solidity == 3)) return 5 - solidity;
+        return solidity;
+    }
+
+    private static byte[] toCollisionBytes(final int[] array, final String name) {
+        if (array.length != TILE_LENGTH) throw new IllegalArgumentException(name + " Length is " + array.length + " instead of " + TILE_LENGTH);
+        final byte[] bytes = new byte[TILE_LENGTH];
+        for (int block = 0; block < TILE_LENGTH; block++) {
+            if (array[block] < 0 || TILE_LENGTH < array[block]) throw new IllegalArgumentException(name + " has value " + array[block] + " at index " + block);
+            bytes[block] = (byte) array[block];
+        }
+        return bytes;
+    }
+
+    private void grow() {
+        final int capacity = Math.min(shapeCount * 2, MAX_SHAPES);
+        heights = Arrays.copyOf(heights, capacity * TILE_LENGTH);
+        widths = Arrays.copyOf(widths, capacity * TILE_LENGTH);
+        angles = Arrays.copyOf(angles, capacity * VARIANTS_PER_SHAPE);
+        solidities = Arrays.copyOf(solidities, capacity * VARIANTS_PER_SHAPE);
+        tiles = Arrays.copyOf(tiles, capacity * VARIANTS_PER_SHAPE);
+    }
+
+    /**
+     * Only used to find shapes which have already been registered.
+     */
+    private static final class ShapeKey {
+        private final byte[] heights, widths;
+        private final int angle, solidity;
+
+        ShapeKey(final byte[] heights, final byte[] widths, final int angle, final int solidity) {
+            this.heights = heights;
+            this.widths = widths;
+            this.angle = angle;
+            this.solidity = solidity;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ShapeKey)) return false;
+            final ShapeKey k = (ShapeKey) o;
+            return angle == k.angle
+                && solidity == k.solidity
+                && Arrays.equals(heights, k.heights)
+                && Arrays.equals(widths, k.widths);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Arrays.hashCode(heights);
+            result = 31 * result + Arrays.hashCode(widths);
+            result = 31 * result + angle;
+            return 31 * result + solidity;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+/**
+ * Moves entities along their velocity, optionally pulled down by gravity - for projectiles, debris and scattered rings.
+ * They don't collide with the TileMap.
+ */
+public class VelocitySystem implements EntitySystem {
+    private final float gravity;
+
+    /**
+     * @param gravity added to the y velocity every second, negative to pull downwards. See Player's GRAVITY_FORCE.
+     */
+    public VelocitySystem(final float gravity) {
+        this.gravity = gravity;
+    }
+
+    @Override
+    public void update(final EntityStore store, final byte type, final int from, final int to, final float delta, final EntityEvents events) {
+        final byte[] types = store.getTypes();
+        final boolean[] resting = store.getResting();
+        final float[] x = store.getXPositions(), y = store.getYPositions();
+        final float[] velocityX = store.getXVelocities(), velocityY = store.getYVelocities();
+        final float gravityChange = gravity * delta;
+
+        for (int entity = from; entity < to; entity++) {
+            if (types[entity] != type || resting[entity]) continue;
+            x[entity] += velocityX[entity] * delta;
+            y[entity] += velocityY[entity] * delta;
+            velocityY[entity] += gravityChange;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Makes sure the physics and collision code run every frame don't allocate once they have warmed up, since garbage
+ * collection pauses show up as hitches - especially on Android.
+ */
+class AllocationTest {
+
+    private static final byte WALKER = 0, PROJECTILE = 1;
+
+    @Test
+    void steadyStateStepsDoNotAllocate() {
+        final com.sun.management.ThreadMXBean threads = getThreadMXBean();
+        final HeadlessSimulation simulation = new HeadlessSimulation();
+        final EntityStore entities = simulation.getEntities();
+        entities.setSystem(WALKER, new GroundWalkerSystem());
+        entities.setSystem(PROJECTILE, new VelocitySystem(-300));
+        for (int i = 0; i < 64; i++) {
+            entities.setVelocity(entities.add(WALKER, 40 + (i * 24), 120, 8, 8), 60, 0);
+            entities.setVelocity(entities.add(PROJECTILE, 40 + (i * 24), 300, 4, 4), 30, 200);
+        }
+
+        //Warms up every path taken below, including the JIT and any lazily created objects
+        runInputs(simulation);
+
+        final long threadId = Thread.currentThread().getId();
+        //Reading the counter can allocate by itself, so that is measured first and taken away
+        final long overheadStart = threads.getThreadAllocatedBytes(threadId);
+        final long overhead = threads.getThreadAllocatedBytes(threadId) - overheadStart;
+
+        final long start = threads.getThreadAllocatedBytes(threadId);
+        runInputs(simulation);
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - start - overhead;
+
+        assertEquals(0, allocated, "bytes allocated while stepping");
+    }
+
+    @Test
+    void snapshotsDoNotAllocate() {
+        final com.sun.management.ThreadMXBean threads = getThreadMXBean();
+        final HeadlessSimulation simulation = new HeadlessSimulation();
+        for (int i = 0; i < 64; i++) simulation.getEntities().add(WALKER, 40 + (i * 24), 120, 8, 8);
+        final StateHistory history = new StateHistory(simulation.getPlayer(), simulation.getEntities(), 8);
+        saveAndRestore(history);
+
+        final long threadId = Thread.currentThread().getId();
+        final long overheadStart = threads.getThreadAllocatedBytes(threadId);
+        final long overhead = threads.getThreadAllocatedBytes(threadId) - overheadStart;
+
+        final long start = threads.getThreadAllocatedBytes(threadId);
+        saveAndRestore(history);
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - start - overhead;
+
+        assertEquals(0, allocated, "bytes allocated while saving and restoring snapshots");
+    }
+
+    @Test
+    void tileLookupsDoNotAllocate() {
+        final com.sun.management.ThreadMXBean threads = getThreadMXBean();
+        lookUpEveryTile();
+
+        final long threadId = Thread.currentThread().getId();
+        final long overheadStart = threads.getThreadAllocatedBytes(threadId);
+        final long overhead = threads.getThreadAllocatedBytes(threadId) - overheadStart;
+
+        final long start = threads.getThreadAllocatedBytes(threadId);
+        lookUpEveryTile();
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - start - overhead;
+
+        assertEquals(0, allocated, "bytes allocated while looking up tiles");
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "the JVM can't count allocated bytes");
+        final com.sun.management.ThreadMXBean allocationCounter = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocationCounter.isThreadAllocatedMemorySupported(), "the JVM can't count allocated bytes");
+        allocationCounter.setThreadAllocatedMemoryEnabled(true);
+        return allocationCounter;
+    }
+
+    /**
+     * Stands still, runs, jumps and runs back again, so that ground movement, air movement, floor collision and wall
+     * collision are all used.
+     */
+    private static void runInputs(final HeadlessSimulation simulation) {
+        for (int repeat = 0; repeat < 5; repeat++) {
+            simulation.getInput().setHeldActions(0);
+            simulation.step(60);
+            simulation.getInput().setHeldActions(PlayerInput.RIGHT);
+            simulation.step(120);
+            simulation.getInput().setHeldActions(PlayerInput.RIGHT | PlayerInput.JUMP);
+            simulation.step(40);
+            simulation.getInput().setHeldActions(PlayerInput.LEFT);
+            simulation.step(180);
+        }
+    }
+
+    /**
+     * Fills the history more than once over, then rolls back and rewinds through it.
+     */
+    private static void saveAndRestore(final StateHistory history) {
+        for (int step = 0; step < 20; step++) history.save(step);
+        history.restore(15);
+        while (history.rewind() != -1) continue;
+    }
+
+    private static int lookUpEveryTile() {
+        int solidTiles = 0;
+        for (int chunkX = 0; chunkX < TileMap.getWidthInChunks(); chunkX++) {
+            for (int chunkY = 0; chunkY < TileMap.getColumnHeight(chunkX); chunkY++) {
+                TileMap.getChunk(chunkX, chunkY).getTexture();
+                for (int tileX = 0; tileX < TileMap.TILES_PER_CHUNK; tileX++) {
+                    for (int tileY = 0; tileY < TileMap.TILES_PER_CHUNK; tileY++) {
+                        if (!TileMap.getTile(chunkX, chunkY, tileX, tileY).isEmpty()) solidTiles++;
+                    }
+                }
+            }
+        }
+        return solidTiles;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AngleTest {
+
+    @Test
+    void degreesConvertBothWays() {
+        assertEquals(0, Angle.fromDegrees(0));
+        assertEquals(24, Angle.fromDegrees(33.75F));
+        assertEquals(32, Angle.fromDegrees(45));
+        assertEquals(224, Angle.fromDegrees(-45));
+        assertEquals(Angle.FLAGGED, Angle.fromDegrees(360));
+        //Would be step 255, which is reserved for flagged tiles
+        assertEquals(0, Angle.fromDegrees(-1));
+
+        for (int angle = 0; angle < Angle.STEPS; angle++) {
+            assertEquals(angle, Angle.fromDegrees(Angle.toDegrees(angle)));
+        }
+    }
+
+    @Test
+    void tablesMatchTheOriginalsPrecision() {
+        assertEquals(0F, Angle.sin(0));
+        assertEquals(1F, Angle.sin(Angle.QUARTER));
+        assertEquals(-1F, Angle.cos(Angle.STEPS / 2));
+        for (int angle = 0; angle < Angle.STEPS; angle++) {
+            assertEquals(Math.sin(angle * Math.PI * 2 / Angle.STEPS), Angle.sin(angle), 1 / 512D);
+            //Every value is a whole number of 256ths, so it is the same on every platform
+            assertEquals(Angle.sin(angle) * 256, Math.round(Angle.sin(angle) * 256), 0);
+            assertEquals(Angle.sin(angle), -Angle.sin(Angle.STEPS - angle), 0F);
+        }
+    }
+
+    @Test
+    void landingRangesAreTheSameForBothDirections() {
+        assertEquals(Angle.LANDING_FLAT, Angle.getLandingRange(Angle.fromDegrees(0)));
+        assertEquals(Angle.LANDING_SLOPE, Angle.getLandingRange(Angle.fromDegrees(33.75F)));
+        assertEquals(Angle.LANDING_SLOPE, Angle.getLandingRange(Angle.fromDegrees(-45)));
+        assertEquals(Angle.LANDING_STEEP, Angle.getLandingRange(Angle.fromDegrees(90)));
+        assertEquals(Angle.LANDING_NONE, Angle.getLandingRange(Angle.fromDegrees(180)));
+    }
+
+    @Test
+    void flippingAndSnapping() {
+        assertEquals(Angle.fromDegrees(-45), Angle.flipHorizontally(Angle.fromDegrees(45)));
+        assertEquals(Angle.fromDegrees(135), Angle.flipVertically(Angle.fromDegrees(45)));
+        assertEquals(Angle.FLAGGED, Angle.flipVertically(Angle.FLAGGED));
+        assertEquals(0, Angle.snapToQuarter(Angle.fromDegrees(-30)));
+        assertEquals(Angle.QUARTER, Angle.snapToQuarter(Angle.fromDegrees(60)));
+    }
+}
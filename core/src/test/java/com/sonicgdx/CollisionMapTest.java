@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import org.junit.jupiter.api.Test;
+
+import static com.sonicgdx.TileMap.TILE_LENGTH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CollisionMapTest {
+
+    @Test
+    void floorSurfacesMatchRegressionAndExtension() {
+        final CollisionMap collisionMap = new CollisionMap(TileMap.getWidthInChunks(), TileMap.getHeightInChunks(), TileMap.getTileRegistry());
+        final int widthInPixels = collisionMap.getWidthInTiles() * TILE_LENGTH;
+
+        //One column and row past each edge of the map as well
+        for (int x = -1; x <= widthInPixels; x++) {
+            for (int tileRow = 0; tileRow <= collisionMap.getHeightInTiles() + 1; tileRow++) {
+                final int height = collisionMap.getHeight(x, tileRow);
+                int expectedRow = tileRow, expectedOffset = height;
+                if (height == TILE_LENGTH && collisionMap.getHeight(x, tileRow + 1) > 0) {
+                    expectedRow++;
+                    expectedOffset += collisionMap.getHeight(x, tileRow + 1);
+                }
+                else if (height == 0) {
+                    expectedRow--;
+                    expectedOffset = collisionMap.getHeight(x, tileRow - 1) - TILE_LENGTH;
+                }
+
+                final int offset = collisionMap.getFloorSurfaceOffset(x, tileRow);
+                assertEquals(expectedOffset, offset, "x " + x + ", row " + tileRow);
+                assertEquals(expectedRow, CollisionMap.getFloorTileRow(tileRow, offset), "x " + x + ", row " + tileRow);
+            }
+        }
+    }
+
+    @Test
+    void updatingAChunkRebakesTheRowsAroundIt() {
+        final CollisionMap collisionMap = new CollisionMap(TileMap.getWidthInChunks(), TileMap.getHeightInChunks(), TileMap.getTileRegistry());
+        final int x = TileMap.CHUNK_LENGTH / 2, rowAbove = TileMap.TILES_PER_CHUNK;
+
+        assertNotEquals(-TILE_LENGTH, collisionMap.getFloorSurfaceOffset(x, 0));
+
+        collisionMap.updateChunk(0, 0, null);
+        assertEquals(-TILE_LENGTH, collisionMap.getFloorSurfaceOffset(x, rowAbove));
+        assertEquals(-TILE_LENGTH, collisionMap.getFloorSurfaceOffset(x, 0));
+    }
+}
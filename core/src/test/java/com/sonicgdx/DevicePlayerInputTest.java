@@ -0,0 +1,61 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.Input;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DevicePlayerInputTest {
+
+    private final DevicePlayerInput input = new DevicePlayerInput();
+
+    @Test
+    void pressIsOnlyConsumedOnce() {
+        input.keyDown(Input.Keys.SPACE);
+        assertEquals(PlayerInput.JUMP, input.getHeldActions());
+        assertEquals(PlayerInput.JUMP, input.consumePressedActions());
+        assertEquals(0, input.consumePressedActions());
+        assertEquals(PlayerInput.JUMP, input.getHeldActions());
+    }
+
+    @Test
+    void pressIsKeptUntilConsumedEvenIfReleased() {
+        input.keyDown(Input.Keys.SPACE);
+        input.keyUp(Input.Keys.SPACE);
+        assertEquals(0, input.getHeldActions());
+        assertEquals(PlayerInput.JUMP, input.consumePressedActions());
+    }
+
+    @Test
+    void actionIsHeldUntilEveryKeyIsReleased() {
+        input.keyDown(Input.Keys.D);
+        input.keyDown(Input.Keys.RIGHT);
+        input.keyUp(Input.Keys.D);
+        assertEquals(PlayerInput.RIGHT, input.getHeldActions());
+        input.keyUp(Input.Keys.RIGHT);
+        assertEquals(0, input.getHeldActions());
+    }
+
+    @Test
+    void releasingUnpressedKeyDoesNothing() {
+        input.keyUp(Input.Keys.A);
+        input.keyDown(Input.Keys.A);
+        assertEquals(PlayerInput.LEFT, input.getHeldActions());
+    }
+}
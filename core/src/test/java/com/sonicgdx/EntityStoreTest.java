@@ -0,0 +1,332 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityStoreTest {
+
+    private static final byte RING = 0, PROJECTILE = 1;
+
+    @Test
+    void systemsOnlyUpdateTheirOwnType() {
+        final EntityStore store = new EntityStore(1);
+        store.setSystem(PROJECTILE, new VelocitySystem(0));
+        final int ring = store.add(RING, 100, 100, 8, 8);
+        final int projectile = store.add(PROJECTILE, 100, 100, 4, 4);
+        store.setVelocity(ring, 60, 0);
+        store.setVelocity(projectile, 60, 0);
+
+        store.update(0.5F);
+        assertEquals(100, store.getXPositions()[ring]);
+        assertEquals(130, store.getXPositions()[projectile]);
+        assertEquals(126, store.getLeftEdges()[projectile]);
+        assertEquals(134, store.getRightEdges()[projectile]);
+        assertEquals(115, store.getInterpolatedXPosition(projectile, 0.5F));
+    }
+
+    @Test
+    void entitiesStayWithinTheBoundaries() {
+        final EntityStore store = new EntityStore();
+        store.setSystem(PROJECTILE, new VelocitySystem(0));
+        final int entity = store.add(PROJECTILE, 10, 20, 4, 4);
+        store.setVelocity(entity, -100, -500);
+
+        store.update(0.1F);
+        assertEquals(0, store.getXPositions()[entity]);
+        store.update(0.1F);
+        store.update(0.1F);
+        //Fell out of the level, so it is back where it was added
+        assertEquals(10, store.getXPositions()[entity]);
+        assertEquals(20, store.getYPositions()[entity]);
+    }
+
+    @Test
+    void stillEntitiesRestUntilWoken() {
+        final EntityStore store = new EntityStore();
+        store.setSystem(PROJECTILE, new VelocitySystem(0));
+        final int entity = store.add(PROJECTILE, 100, 100, 4, 4);
+
+        store.update(0.1F);
+        assertTrue(store.getResting()[entity]);
+
+        store.setVelocity(entity, 50, 0);
+        assertFalse(store.getResting()[entity]);
+        store.update(0.1F);
+        assertEquals(105, store.getXPositions()[entity]);
+        assertFalse(store.getResting()[entity]);
+
+        store.setVelocity(entity, 0, 0);
+        store.update(0.1F);
+        assertTrue(store.getResting()[entity]);
+    }
+
+    @Test
+    void changingTheTileMapWakesEveryEntity() {
+        final EntityStore store = new EntityStore();
+        final int[] updates = {0};
+        store.setSystem(RING, (updated, type, from, to, delta, events) -> {
+            for (int entity = from; entity < to; entity++) {
+                if (updated.getTypes()[entity] == type && !updated.getResting()[entity]) updates[0]++;
+            }
+        });
+        store.add(RING, 100, 100, 8, 8);
+
+        store.update(0.1F);
+        store.update(0.1F);
+        assertEquals(1, updates[0]);
+        //Replacing a chunk with itself still changes the TileMap's revision
+        TileMap.setChunk(0, 0, TileMap.getChunk(0, 0));
+        store.update(0.1F);
+        assertEquals(2, updates[0]);
+    }
+
+    @Test
+    void removingMovesTheLastEntity() {
+        final EntityStore store = new EntityStore(2);
+        for (int i = 0; i < 5; i++) store.add(RING, i, 0, 8, 8);
+
+        assertEquals(4, store.remove(1));
+        assertEquals(4, store.getSize());
+        assertEquals(4, store.getXPositions()[1]);
+        assertEquals(3, store.remove(3));
+        assertEquals(3, store.getSize());
+    }
+
+    @Test
+    void overlapQueriesMatchCheckingEveryEntity() {
+        final EntityStore store = new EntityStore(4);
+        store.setSystem(PROJECTILE, new VelocitySystem(-300));
+        final Random random = new Random(1);
+        for (int i = 0; i < 500; i++) {
+            final byte type = random.nextBoolean() ? RING : PROJECTILE;
+            final int entity = store.add(type, random.nextFloat() * 2000, random.nextFloat() * 1000, 8, 8 + random.nextInt(100));
+            store.setVelocity(entity, random.nextFloat() * 600 - 300, random.nextFloat() * 600);
+        }
+
+        final IntArray results = new IntArray();
+        for (int step = 0; step < 60; step++) {
+            store.update(1F / 60);
+            if (step % 10 == 0) store.remove(random.nextInt(store.getSize()));
+
+            final float left = random.nextFloat() * 2000, bottom = random.nextFloat() * 1000;
+            final float right = left + random.nextFloat() * 300, top = bottom + random.nextFloat() * 300;
+            results.clear();
+            store.queryOverlaps(left, right, bottom, top, results);
+            results.sort();
+
+            final IntArray expected = new IntArray();
+            for (int entity = 0; entity < store.getSize(); entity++) {
+                if (store.getLeftEdges()[entity] <= right && store.getRightEdges()[entity] >= left
+                    && store.getBottomEdges()[entity] <= top && store.getTopEdges()[entity] >= bottom) expected.add(entity);
+            }
+            assertArrayEquals(expected.toArray(), results.toArray(), "step " + step);
+        }
+    }
+
+    /**
+     * Runs every piece of work on its own thread, in reverse order.
+     */
+    private static final ParallelRunner THREADED = new ParallelRunner() {
+        @Override
+        public void runAll(final int count, final Work work) {
+            final Thread[] threads = new Thread[count];
+            for (int index = count - 1; index >= 0; index--) {
+                final int piece = index;
+                threads[index] = new Thread(() -> work.run(piece));
+                threads[index].start();
+            }
+            try {
+                for (final Thread thread : threads) thread.join();
+            } catch (final InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public int getParallelism() {
+            return 8;
+        }
+    };
+
+    /**
+     * Walkers which spawn a projectile and play a sound every time they turn around, and projectiles which despawn
+     * once they are moving downwards.
+     */
+    private static EntityStore createBusyStore(final ParallelRunner parallelRunner, final IntArray sounds) {
+        final EntityStore store = new EntityStore(8);
+        store.setParallelRunner(parallelRunner, 7);
+        store.setSoundListener((soundId, x, y) -> sounds.add(soundId));
+
+        final GroundWalkerSystem walkers = new GroundWalkerSystem();
+        store.setSystem(RING, (entityStore, type, from, to, delta, events) -> {
+            final float[] velocityX = entityStore.getXVelocities();
+            final float[] before = new float[to - from];
+            System.arraycopy(velocityX, from, before, 0, to - from);
+            walkers.update(entityStore, type, from, to, delta, events);
+            for (int entity = from; entity < to; entity++) {
+                if (entityStore.getTypes()[entity] != type || velocityX[entity] == before[entity - from]) continue;
+                events.spawn(entity, PROJECTILE, entityStore.getXPositions()[entity], entityStore.getYPositions()[entity], 4, 4, 0, 200);
+                events.playSound(entity, entity, entityStore.getXPositions()[entity], entityStore.getYPositions()[entity]);
+            }
+        });
+        final VelocitySystem projectiles = new VelocitySystem(-787.5F);
+        store.setSystem(PROJECTILE, (entityStore, type, from, to, delta, events) -> {
+            projectiles.update(entityStore, type, from, to, delta, events);
+            for (int entity = from; entity < to; entity++) {
+                if (entityStore.getTypes()[entity] == type && entityStore.getYVelocities()[entity] < 0) events.despawn(entity);
+            }
+        });
+
+        final Random random = new Random(2);
+        for (int i = 0; i < 200; i++) {
+            final int walker = store.add(RING, random.nextFloat() * 1000, 150 + random.nextFloat() * 100, 8, 15);
+            store.setVelocity(walker, random.nextFloat() * 240 - 120, 0);
+        }
+        return store;
+    }
+
+    @Test
+    void parallelUpdatesMatchSequentialOnes() {
+        final IntArray sequentialSounds = new IntArray(), threadedSounds = new IntArray();
+        final EntityStore sequential = createBusyStore(ParallelRunner.SEQUENTIAL, sequentialSounds);
+        final EntityStore threaded = createBusyStore(THREADED, threadedSounds);
+
+        for (int step = 0; step < 300; step++) {
+            sequential.update(1F / 60);
+            threaded.update(1F / 60);
+
+            assertEquals(sequential.getSize(), threaded.getSize(), "step " + step);
+            for (int entity = 0; entity < sequential.getSize(); entity++) {
+                assertEquals(sequential.getTypes()[entity], threaded.getTypes()[entity]);
+                assertEquals(sequential.getXPositions()[entity], threaded.getXPositions()[entity]);
+                assertEquals(sequential.getYPositions()[entity], threaded.getYPositions()[entity]);
+            }
+        }
+        assertArrayEquals(sequentialSounds.toArray(), threadedSounds.toArray());
+        assertTrue(sequentialSounds.size > 0);
+    }
+
+    @Test
+    void parallelUpdatesBakeTheChunksTheyUse() {
+        //The threaded store runs first over a map which hasn't been baked yet, so its partitions would be the ones baking
+        loadUnreadCopyOfMap();
+        final IntArray threadedSounds = new IntArray();
+        final FloatArray threadedPositions = recordPositions(createBusyStore(THREADED, threadedSounds));
+
+        loadUnreadCopyOfMap();
+        final IntArray sequentialSounds = new IntArray();
+        final FloatArray sequentialPositions = recordPositions(createBusyStore(ParallelRunner.SEQUENTIAL, sequentialSounds));
+
+        assertArrayEquals(sequentialPositions.toArray(), threadedPositions.toArray());
+        assertArrayEquals(sequentialSounds.toArray(), threadedSounds.toArray());
+    }
+
+    /**
+     * Replaces the map with a copy of itself read back from a level file, so none of its chunks have been read or
+     * baked yet.
+     */
+    private static void loadUnreadCopyOfMap() {
+        final Chunk[][] map = new Chunk[TileMap.getWidthInChunks()][];
+        for (int chunkX = 0; chunkX < map.length; chunkX++) {
+            map[chunkX] = new Chunk[TileMap.getColumnHeight(chunkX)];
+            for (int chunkY = 0; chunkY < map[chunkX].length; chunkY++) map[chunkX][chunkY] = TileMap.getChunk(chunkX, chunkY);
+        }
+        TileMap.load(new Level(ByteBuffer.wrap(LevelWriter.write(map, TileMap.getTileRegistry()))));
+    }
+
+    /**
+     * @return every entity's position after each of 300 steps
+     */
+    private static FloatArray recordPositions(final EntityStore store) {
+        final FloatArray positions = new FloatArray();
+        for (int step = 0; step < 300; step++) {
+            store.update(1F / 60);
+            for (int entity = 0; entity < store.getSize(); entity++) positions.add(store.getXPositions()[entity], store.getYPositions()[entity]);
+        }
+        return positions;
+    }
+
+    /**
+     * Runs every piece of work one after another on the calling thread, so that only the number of partitions changes.
+     */
+    private static ParallelRunner inPartitions(final int partitionCount) {
+        return new ParallelRunner() {
+            @Override
+            public void runAll(final int count, final Work work) {
+                for (int piece = 0; piece < count; piece++) work.run(piece);
+            }
+
+            @Override
+            public int getParallelism() {
+                return partitionCount;
+            }
+        };
+    }
+
+    @Test
+    void eventsAreInEntityOrderHoweverTheStoreIsPartitioned() {
+        IntArray expectedSounds = null;
+        float[] expectedPositions = null;
+        for (int partitionCount = 1; partitionCount <= 3; partitionCount++) {
+            final IntArray sounds = new IntArray();
+            final EntityStore store = new EntityStore();
+            store.setParallelRunner(inPartitions(partitionCount), 1);
+            store.setSoundListener((soundId, x, y) -> sounds.add(soundId));
+
+            //Both types spawn an entity of their own type and play a sound for every entity they update
+            final EntitySystem emitter = (entityStore, type, from, to, delta, events) -> {
+                for (int entity = from; entity < to; entity++) {
+                    if (entityStore.getTypes()[entity] != type) continue;
+                    events.spawn(entity, type, entity, 100 + type, 4, 4, 0, 0);
+                    events.playSound(entity, (type * 1000) + entity, 0, 0);
+                }
+            };
+            store.setSystem(RING, emitter);
+            store.setSystem(PROJECTILE, emitter);
+            for (int i = 0; i < 6; i++) store.add((i % 3 == 0) ? RING : PROJECTILE, 50, 100, 4, 4);
+
+            store.update(1F / 60);
+            store.update(1F / 60);
+
+            final float[] positions = new float[store.getSize() * 2];
+            for (int entity = 0; entity < store.getSize(); entity++) {
+                positions[entity * 2] = store.getXPositions()[entity];
+                positions[(entity * 2) + 1] = store.getYPositions()[entity];
+            }
+            if (expectedSounds == null) {
+                expectedSounds = sounds;
+                expectedPositions = positions;
+            } else {
+                assertArrayEquals(expectedSounds.toArray(), sounds.toArray(), partitionCount + " partitions");
+                assertArrayEquals(expectedPositions, positions, partitionCount + " partitions");
+            }
+        }
+        //The first step's sounds are in entity order rather than type order
+        assertEquals(1001, expectedSounds.get(1));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FrameProfilerTest {
+
+    @Test
+    void countsAreKeptPerFrame() {
+        FrameProfiler.reset();
+        FrameProfiler.setEnabled(true);
+        for (int frame = 1; frame <= 10; frame++) {
+            FrameProfiler.beginFrame();
+            FrameProfiler.count(FrameProfiler.Counter.TILE_LOOKUPS, frame);
+            FrameProfiler.count(FrameProfiler.Counter.PHYSICS_STEPS);
+            FrameProfiler.endFrame();
+        }
+
+        assertEquals(10, FrameProfiler.getFramesRecorded());
+        assertEquals(10, FrameProfiler.getCount(FrameProfiler.Counter.TILE_LOOKUPS, 0));
+        assertEquals(1, FrameProfiler.getCount(FrameProfiler.Counter.TILE_LOOKUPS, 9));
+        assertEquals(10, FrameProfiler.getMaxCount(FrameProfiler.Counter.TILE_LOOKUPS));
+        assertEquals(5.5F, FrameProfiler.getAverageCount(FrameProfiler.Counter.TILE_LOOKUPS), 0.001F);
+        assertEquals(1F, FrameProfiler.getAverageCount(FrameProfiler.Counter.PHYSICS_STEPS), 0.001F);
+        FrameProfiler.setEnabled(false);
+    }
+
+    @Test
+    void oldFramesAreOverwritten() {
+        FrameProfiler.reset();
+        FrameProfiler.setEnabled(true);
+        for (int frame = 0; frame < FrameProfiler.FRAMES_KEPT + 5; frame++) {
+            FrameProfiler.beginFrame();
+            FrameProfiler.count(FrameProfiler.Counter.SENSOR_PROBES, frame);
+            FrameProfiler.endFrame();
+        }
+
+        assertEquals(FrameProfiler.FRAMES_KEPT, FrameProfiler.getFramesRecorded());
+        assertEquals(5, FrameProfiler.getCount(FrameProfiler.Counter.SENSOR_PROBES, FrameProfiler.FRAMES_KEPT - 1));
+        FrameProfiler.setEnabled(false);
+    }
+
+    @Test
+    void nothingIsRecordedWhenDisabled() {
+        FrameProfiler.setEnabled(false);
+        FrameProfiler.reset();
+        FrameProfiler.beginFrame();
+        FrameProfiler.count(FrameProfiler.Counter.TILE_LOOKUPS);
+        FrameProfiler.endFrame();
+
+        assertEquals(0, FrameProfiler.getFramesRecorded());
+        assertEquals(0, FrameProfiler.getMaxCount(FrameProfiler.Counter.TILE_LOOKUPS));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InputReplayTest {
+
+    /**
+     * Records a short session in a headless simulation, with a varying number of steps in each frame.
+     */
+    private static byte[] record() {
+        final HeadlessSimulation simulation = new HeadlessSimulation();
+        final Player player = simulation.getPlayer();
+        player.reset();
+        final InputRecorder recorder = new InputRecorder(simulation.getInput(), 60, player);
+        player.setInput(recorder);
+
+        for (int frame = 0; frame < 300; frame++) {
+            if (frame == 100) simulation.getInput().setHeldActions(PlayerInput.RIGHT);
+            if (frame == 150) simulation.getInput().setHeldActions(PlayerInput.RIGHT | PlayerInput.JUMP);
+            if (frame == 200) simulation.getInput().setHeldActions(0);
+
+            recorder.beginFrame(1 / 60F);
+            for (int step = 0; step < frame % 3; step++) {
+                simulation.step();
+                recorder.recordStep(player);
+            }
+            recorder.endFrame();
+        }
+        return recorder.toByteArray();
+    }
+
+    @Test
+    void replayMatchesRecording() {
+        final InputReplay replay = new InputReplay(record());
+        assertEquals(-1, new HeadlessSimulation().replay(replay));
+        assertEquals(300, replay.getStepCount());
+    }
+
+    @Test
+    void changedInputDiverges() {
+        final byte[] recording = record();
+        //Presses right in the first step of the second frame, which has the first step
+        recording[InputRecorder.HEADER_SIZE + InputRecorder.FRAME_HEADER_SIZE + InputRecorder.FRAME_HEADER_SIZE] = PlayerInput.RIGHT;
+        assertEquals(0, new HeadlessSimulation().replay(new InputReplay(recording)));
+    }
+
+    @Test
+    void rejectsOtherData() {
+        assertThrows(IllegalArgumentException.class, () -> new InputReplay(new byte[]{1, 2, 3, 4, 5, 6}));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static com.sonicgdx.TileMap.TILES_PER_CHUNK;
+import static com.sonicgdx.TileMap.TILE_LENGTH;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevelTest {
+
+    @Test
+    void writtenLevelReadsBackTheSame() {
+        final TileRegistry registry = new TileRegistry();
+        final int[] slope = new int[TILE_LENGTH];
+        for (int block = 0; block < TILE_LENGTH; block++) slope[block] = block + 1;
+        final short slopeId = registry.register(slope, slope, 45, 1);
+
+        final short[][] tileIds = new short[TILES_PER_CHUNK][TILES_PER_CHUNK];
+        tileIds[0][0] = slopeId;
+        tileIds[1][0] = TileRegistry.toId(TileRegistry.getShape(slopeId), 3);
+        final Chunk textured = new Chunk("95", tileIds), empty = new Chunk(new short[TILES_PER_CHUNK][TILES_PER_CHUNK]);
+        final Chunk[][] map = {{textured, empty, textured}, {empty}};
+
+        final Level level = new Level(ByteBuffer.wrap(LevelWriter.write(map, registry)));
+        //Read before any chunks are, since it doesn't need them
+        assertEquals("95", level.getTextureName(0, 2));
+        assertNull(level.getTextureName(1, 0));
+        assertEquals(2, level.getWidthInChunks());
+        assertEquals(3, level.getColumnHeight(0));
+        assertEquals(1, level.getColumnHeight(1));
+
+        final Chunk read = level.getChunk(0, 0);
+        assertSame(read, level.getChunk(0, 2));
+        assertEquals("95", read.getTextureName());
+        assertEquals(tileIds[1][0], read.getTileId(1, 0));
+        assertTrue(level.getChunk(1, 0).isEmpty());
+
+        final TileRegistry readRegistry = level.getTileRegistry();
+        for (int block = 0; block < TILE_LENGTH; block++) {
+            assertEquals(registry.getHeight(tileIds[1][0], block), readRegistry.getHeight(read.getTileId(1, 0), block));
+        }
+        assertThrows(IllegalArgumentException.class, () -> level.getChunk(1, 1));
+    }
+
+    @Test
+    void rejectsOtherData() {
+        final byte[] data = LevelWriter.write(new Chunk[0][], new TileRegistry());
+        data[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> new Level(ByteBuffer.wrap(data)));
+        assertThrows(IllegalArgumentException.class, () -> new Level(ByteBuffer.allocate(3)));
+    }
+
+    @Test
+    void rejectsCorruptLengths() {
+        final Chunk textured = new Chunk("95", new short[TILES_PER_CHUNK][TILES_PER_CHUNK]);
+        final byte[] data = LevelWriter.write(new Chunk[][]{{textured}}, new TileRegistry());
+
+        //A column which is negative, or taller than the grid
+        final ByteBuffer columnTooTall = ByteBuffer.wrap(data.clone());
+        final int columnHeightsPosition = Level.HEADER_SIZE + (columnTooTall.getInt(8) * Level.SHAPE_SIZE) + (columnTooTall.getInt(12) * Level.CHUNK_DEFINITION_SIZE);
+        columnTooTall.putShort(columnHeightsPosition, (short) -1);
+        assertThrows(IllegalArgumentException.class, () -> new Level(columnTooTall));
+
+        //The last texture name's length, which is read as unsigned rather than negative
+        final ByteBuffer nameTooLong = ByteBuffer.wrap(data.clone());
+        nameTooLong.putShort(data.length - 4, (short) -1);
+        assertThrows(IllegalArgumentException.class, () -> new Level(nameTooLong));
+
+        //More columns than the data has room for
+        final ByteBuffer tooManyColumns = ByteBuffer.wrap(data.clone());
+        tooManyColumns.putInt(16, Integer.MAX_VALUE);
+        assertThrows(IllegalArgumentException.class, () -> new Level(tooManyColumns));
+    }
+}
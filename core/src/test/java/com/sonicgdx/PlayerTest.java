@@ -19,13 +19,112 @@ package com.sonicgdx;
 import com.sonicgdx.Player;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 class PlayerTest {
 
-    private final Player player = new Player(10,10);
+    private final Player player = new Player(10,10,new SimulatedPlayerInput());
 
     @Test
     void slopeTest() {
         final float delta60 = 0.01666667F;
         player.sprite.setX(0);
     }
+
+    @Test
+    void landsAndStaysStill() {
+        final HeadlessSimulation simulation = new HeadlessSimulation();
+        simulation.step(120);
+        final float x = simulation.getPlayer().getXPosition(), y = simulation.getPlayer().getYPosition();
+
+        simulation.step(60);
+        assertEquals(x, simulation.getPlayer().getXPosition());
+        assertEquals(y, simulation.getPlayer().getYPosition());
+    }
+
+    @Test
+    void holdingRightMovesRight() {
+        final HeadlessSimulation simulation = new HeadlessSimulation();
+        simulation.step(120);
+        final float x = simulation.getPlayer().getXPosition();
+
+        simulation.getInput().setHeldActions(PlayerInput.RIGHT);
+        simulation.step(30);
+        assertTrue(simulation.getPlayer().getXPosition() > x);
+    }
+
+    @Test
+    void sameInputGivesSamePositions() {
+        final HeadlessSimulation first = new HeadlessSimulation(), second = new HeadlessSimulation();
+        for (final HeadlessSimulation simulation : new HeadlessSimulation[]{first, second}) {
+            simulation.step(100);
+            simulation.getInput().setHeldActions(PlayerInput.RIGHT);
+            simulation.step(50);
+            simulation.getInput().setHeldActions(PlayerInput.RIGHT | PlayerInput.JUMP);
+            simulation.step(40);
+            simulation.getInput().setHeldActions(0);
+            simulation.step(200);
+        }
+        assertEquals(first.getPlayer().getXPosition(), second.getPlayer().getXPosition());
+        assertEquals(first.getPlayer().getYPosition(), second.getPlayer().getYPosition());
+    }
+
+    @Test
+    void fixedPointLandsAndStaysStill() {
+        final HeadlessSimulation simulation = new HeadlessSimulation();
+        simulation.setFixedPointPhysics(true);
+        simulation.step(120);
+        final float x = simulation.getPlayer().getXPosition(), y = simulation.getPlayer().getYPosition();
+
+        simulation.step(60);
+        assertEquals(x, simulation.getPlayer().getXPosition());
+        assertEquals(y, simulation.getPlayer().getYPosition());
+    }
+
+    @Test
+    void fixedPointStaysCloseToFloat() {
+        final HeadlessSimulation floatSimulation = new HeadlessSimulation(), fixedSimulation = new HeadlessSimulation();
+        fixedSimulation.setFixedPointPhysics(true);
+        for (final HeadlessSimulation simulation : new HeadlessSimulation[]{floatSimulation, fixedSimulation}) {
+            simulation.step(100);
+            simulation.getInput().setHeldActions(PlayerInput.RIGHT);
+            simulation.step(50);
+            simulation.getInput().setHeldActions(PlayerInput.RIGHT | PlayerInput.JUMP);
+            simulation.step(40);
+            simulation.getInput().setHeldActions(0);
+            simulation.step(200);
+        }
+        //The constants are rounded to whole subpixels, so the two only drift apart slowly
+        assertEquals(floatSimulation.getPlayer().getXPosition(), fixedSimulation.getPlayer().getXPosition(), 2);
+        assertEquals(floatSimulation.getPlayer().getYPosition(), fixedSimulation.getPlayer().getYPosition(), 2);
+    }
+
+    @Test
+    void restsUntilThereIsInput() {
+        final HeadlessSimulation simulation = new HeadlessSimulation();
+        simulation.step(120);
+        assertTrue(simulation.getPlayer().isResting());
+
+        simulation.getInput().setHeldActions(PlayerInput.RIGHT);
+        simulation.step();
+        assertFalse(simulation.getPlayer().isResting());
+    }
+
+    @Test
+    void restingGivesTheSameSteps() {
+        final HeadlessSimulation resting = new HeadlessSimulation(), awake = new HeadlessSimulation();
+        for (int step = 0; step < 400; step++) {
+            final int heldActions = (step >= 150 && step < 190) ? PlayerInput.RIGHT : 0;
+            for (final HeadlessSimulation simulation : new HeadlessSimulation[]{resting, awake}) {
+                simulation.getInput().setHeldActions(heldActions);
+            }
+            resting.step();
+            //Waking the player every step means it never skips one
+            awake.getPlayer().wake();
+            awake.step();
+            assertEquals(awake.getPlayer().getStateHash(), resting.getPlayer().getStateHash());
+        }
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SensorBatchTest {
+
+    @Test
+    void matchesSeparateSensors() {
+        final SensorBatch batch = new SensorBatch(4);
+        final int floorA = batch.add(SensorBatch.FLOOR), floorB = batch.add(SensorBatch.FLOOR);
+        final int wallE = batch.add(SensorBatch.WALL), wallF = batch.add(SensorBatch.WALL);
+        for (int sensor = 0; sensor < batch.getSize(); sensor++) batch.setActive(sensor, true);
+        //A batch with one sensor never reuses a lookup, so it is what each sensor would find on its own
+        final SensorBatch floor = new SensorBatch(1), wall = new SensorBatch(1);
+        floor.setActive(floor.add(SensorBatch.FLOOR), true);
+        wall.setActive(wall.add(SensorBatch.WALL), true);
+
+        for (float y = -2.25F; y < 250; y += 3.7F) {
+            for (float x = -2.25F; x < 600; x += 5.3F) {
+                //Laid out like the player's sensors, with the floor sensors sharing a row and a pair in the same place
+                batch.setPosition(floorA, x, y);
+                batch.setPosition(floorB, x + 0.1F, y);
+                batch.setPosition(wallE, x, y + 10);
+                batch.setPosition(wallF, x + 18, y + 10);
+                batch.process();
+
+                for (int index = 0; index < batch.getSize(); index++) {
+                    final SensorBatch single = (index == floorA || index == floorB) ? floor : wall;
+                    single.setPosition(0, batch.getXPosition(index), batch.getYPosition(index));
+                    single.process();
+                    final String at = "sensor " + index + " at (" + batch.getXPosition(index) + ", " + batch.getYPosition(index) + ")";
+                    assertEquals(single.getDistance(0), batch.getDistance(index), at);
+                    assertEquals(single.getTileId(0), batch.getTileId(index), at);
+                    assertEquals(single.getTileAngle(0), batch.getTileAngle(index), at);
+                }
+            }
+        }
+    }
+
+    @Test
+    void inactiveSensorsKeepTheirResults() {
+        final SensorBatch batch = new SensorBatch(1);
+        final int floor = batch.add(SensorBatch.FLOOR);
+        batch.setActive(floor, true);
+        batch.setPosition(floor, 150, 100);
+        batch.process();
+        final float distance = batch.getDistance(floor);
+
+        batch.setActive(floor, false);
+        batch.setPosition(floor, 450, 300);
+        batch.process();
+        assertEquals(distance, batch.getDistance(floor));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import com.badlogic.gdx.utils.IntArray;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateHistoryTest {
+
+    private static final byte WALKER = 0, PROJECTILE = 1;
+
+    @Test
+    void readingAStateGivesTheSameFuture() {
+        final HeadlessSimulation simulation = createSimulation();
+        simulation.step(100);
+        final ByteBuffer buffer = ByteBuffer.allocate(StateHistory.getSnapshotSize(simulation.getEntities()));
+        simulation.writeState(buffer);
+        assertEquals(buffer.capacity(), buffer.position());
+
+        runAndJump(simulation);
+        final int hash = simulation.getPlayer().getStateHash();
+        final float[] entityXPositions = copyXPositions(simulation.getEntities());
+        final long stepCount = simulation.getStepCount();
+
+        buffer.flip();
+        simulation.readState(buffer);
+        assertEquals(100, simulation.getStepCount());
+        runAndJump(simulation);
+        assertEquals(hash, simulation.getPlayer().getStateHash());
+        assertArrayEquals(entityXPositions, copyXPositions(simulation.getEntities()));
+        assertEquals(stepCount, simulation.getStepCount());
+
+        //The grid is rebuilt as well, so the player still finds the same entities
+        final IntArray overlaps = new IntArray();
+        simulation.getEntities().queryOverlaps(0, 10000, 0, 10000, overlaps);
+        assertEquals(simulation.getEntities().getSize(), overlaps.size);
+    }
+
+    @Test
+    void fixedPointStateReadsIntoAFreshPlayer() {
+        final HeadlessSimulation simulation = createSimulation();
+        simulation.setFixedPointPhysics(true);
+        runAndJump(simulation);
+        final ByteBuffer buffer = ByteBuffer.allocate(StateHistory.getSnapshotSize(simulation.getEntities()));
+        simulation.writeState(buffer);
+        runAndJump(simulation);
+
+        //This player has never run a fixed-point step, so it hasn't converted the constants for the step length yet
+        final HeadlessSimulation restored = createSimulation();
+        restored.setFixedPointPhysics(true);
+        buffer.flip();
+        restored.readState(buffer);
+        runAndJump(restored);
+        assertEquals(simulation.getPlayer().getStateHash(), restored.getPlayer().getStateHash());
+    }
+
+    @Test
+    void historyKeepsTheNewestSnapshots() {
+        final HeadlessSimulation simulation = createSimulation();
+        final StateHistory history = new StateHistory(simulation.getPlayer(), simulation.getEntities(), 4);
+        final int[] hashes = new int[10];
+        for (int step = 0; step < 10; step++) {
+            simulation.step();
+            history.save(step);
+            hashes[step] = simulation.getPlayer().getStateHash();
+        }
+        assertEquals(4, history.getSize());
+        assertEquals(6, history.getOldestStep());
+        assertEquals(9, history.getNewestStep());
+
+        assertFalse(history.restore(3));
+        assertTrue(history.restore(7));
+        assertEquals(hashes[7], simulation.getPlayer().getStateHash());
+        assertEquals(7, history.getNewestStep());
+        assertEquals(2, history.getSize());
+
+        assertEquals(7, history.rewind());
+        assertEquals(6, history.rewind());
+        assertEquals(hashes[6], simulation.getPlayer().getStateHash());
+        assertEquals(-1, history.rewind());
+    }
+
+    private static HeadlessSimulation createSimulation() {
+        final HeadlessSimulation simulation = new HeadlessSimulation();
+        final EntityStore entities = simulation.getEntities();
+        entities.setSystem(WALKER, new GroundWalkerSystem());
+        entities.setSystem(PROJECTILE, new VelocitySystem(-300));
+        for (int i = 0; i < 16; i++) {
+            entities.setVelocity(entities.add(WALKER, 40 + (i * 24), 120, 8, 8), 60, 0);
+            entities.setVelocity(entities.add(PROJECTILE, 40 + (i * 24), 300, 4, 4), 30, 200);
+        }
+        return simulation;
+    }
+
+    private static void runAndJump(final HeadlessSimulation simulation) {
+        simulation.getInput().setHeldActions(PlayerInput.RIGHT);
+        simulation.step(40);
+        simulation.getInput().setHeldActions(PlayerInput.RIGHT | PlayerInput.JUMP);
+        simulation.step(30);
+        simulation.getInput().setHeldActions(0);
+    }
+
+    private static float[] copyXPositions(final EntityStore entities) {
+        final float[] xPositions = new float[entities.getSize()];
+        System.arraycopy(entities.getXPositions(), 0, xPositions, 0, xPositions.length);
+        return xPositions;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2023 SonicGDX
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonicgdx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TileRegistryTest {
+
+    private final int[] slope = {1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16};
+    private final int[] full = {16,16,16,16,16,16,16,16,16,16,16,16,16,16,16,16};
+
+    @Test
+    void identicalShapesShareAnId() {
+        final TileRegistry registry = new TileRegistry();
+        final short first = registry.register(slope, slope, 45, 1);
+        final short second = registry.register(slope.clone(), slope.clone(), 45, 1);
+
+        assertEquals(first, second);
+        assertSame(registry.getTile(first), registry.getTile(second));
+        assertNotEquals(first, registry.register(slope, slope, 45, 4));
+        //The empty shape is always registered first
+        assertEquals(3, registry.getShapeCount());
+    }
+
+    @Test
+    void flippingMirrorsIndicesWithoutNewShapes() {
+        final TileRegistry registry = new TileRegistry();
+        final short tile = registry.register(slope, full, 45, 1);
+        final short flipped = registry.flip(tile, true, false);
+
+        for (int block = 0; block < TileMap.TILE_LENGTH; block++) {
+            assertEquals(slope[TileMap.TILE_LENGTH - 1 - block], registry.getHeight(flipped, block));
+            assertEquals(full[block], registry.getWidth(flipped, block));
+        }
+        assertEquals(Angle.fromDegrees(-45), registry.getAngle(flipped));
+        assertTrue(registry.isFlippedHorizontally(flipped));
+        assertFalse(registry.isFlippedVertically(flipped));
+        assertEquals(tile, registry.flip(flipped, true, false));
+        assertEquals(2, registry.getShapeCount());
+    }
+
+    @Test
+    void emptyTileIsNeverFlipped() {
+        final TileRegistry registry = new TileRegistry();
+        assertEquals(TileRegistry.EMPTY_TILE_ID, registry.flip(TileRegistry.EMPTY_TILE_ID, true, true));
+        assertTrue(registry.isEmpty(TileRegistry.EMPTY_TILE_ID));
+        assertEquals(0, registry.getHeight(TileRegistry.EMPTY_TILE_ID, 3));
+    }
+
+    @Test
+    void invalidShapesAreRejected() {
+        final TileRegistry registry = new TileRegistry();
+        assertThrows(IllegalArgumentException.class, () -> registry.register(new int[15], full, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(full, new int[]{17,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0}, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(full, full, 0, 5));
+    }
+}
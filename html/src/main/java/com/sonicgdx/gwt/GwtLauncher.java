@@ -21,6 +21,9 @@ public class GwtLauncher extends GwtApplication {
 
         @Override
         public ApplicationListener createApplicationListener () {
-            return new Game();
+            Game game = new Game();
+            // Floats and longs are slow in JavaScript, so the physics only uses ints
+            game.fixedPointPhysics = true;
+            return game;
         }
 }
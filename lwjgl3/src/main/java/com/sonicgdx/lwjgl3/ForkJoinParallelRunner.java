@@ -0,0 +1,63 @@
+package com.sonicgdx.lwjgl3;
+
+import com.sonicgdx.ParallelRunner;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Spreads work across every core with the common fork-join pool. The calling thread works on one of the pieces itself
+ * instead of just waiting for the others.
+ * <p>
+ * One task per piece is kept and reused, so running work every frame doesn't allocate.
+ */
+public class ForkJoinParallelRunner implements ParallelRunner {
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+    private Piece[] pieces = new Piece[0];
+
+    @Override
+    public void runAll(final int count, final Work work) {
+        if (count == 1) {
+            work.run(0);
+            return;
+        }
+        if (pieces.length < count) {
+            final int oldLength = pieces.length;
+            pieces = Arrays.copyOf(pieces, count);
+            for (int piece = oldLength; piece < count; piece++) pieces[piece] = new Piece(piece);
+        }
+
+        // The rest goes to the pool while this thread does the first piece
+        for (int piece = 1; piece < count; piece++) {
+            pieces[piece].reinitialize();
+            pieces[piece].work = work;
+            pool.execute(pieces[piece]);
+        }
+        work.run(0);
+        for (int piece = 1; piece < count; piece++) {
+            pieces[piece].join();
+            pieces[piece].work = null;
+        }
+    }
+
+    @Override
+    public int getParallelism() {
+        // The calling thread isn't part of the pool, but it does a piece of the work too
+        return pool.getParallelism() + 1;
+    }
+
+    private static final class Piece extends RecursiveAction {
+        private final int index;
+        private Work work;
+
+        Piece(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        protected void compute() {
+            work.run(index);
+        }
+    }
+}
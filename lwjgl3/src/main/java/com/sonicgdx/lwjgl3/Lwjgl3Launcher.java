@@ -4,15 +4,22 @@ import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
 import com.sonicgdx.Game;
 
+import java.util.Arrays;
+
 /** Launches the desktop (LWJGL3) application. */
 public class Lwjgl3Launcher {
     public static void main(String[] args) {
         if (StartupHelper.startNewJvmIfRequired()) return; // This handles macOS support and helps on Windows.
-        createApplication();
+        createApplication(args);
     }
 
-    private static Lwjgl3Application createApplication() {
-        return new Lwjgl3Application(new Game(), getDefaultConfiguration());
+    private static Lwjgl3Application createApplication(String[] args) {
+        Game game = new Game(new MappedLevelLoader(), new ForkJoinParallelRunner());
+        // Logs draw calls, texture binds and batch flushes every couple of seconds, for benchmark runs
+        game.logRenderStats = Arrays.asList(args).contains("--log-render-stats");
+        // The same physics as the web builds, for comparing recordings between them
+        game.fixedPointPhysics = Arrays.asList(args).contains("--fixed-point-physics");
+        return new Lwjgl3Application(game, getDefaultConfiguration());
     }
 
     private static Lwjgl3ApplicationConfiguration getDefaultConfiguration() {
@@ -0,0 +1,30 @@
+package com.sonicgdx.lwjgl3;
+
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.sonicgdx.LevelLoader;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-maps level files instead of reading them, so the OS only loads the parts of a level which are actually used.
+ * Files inside the jar can't be mapped, so those are read into memory instead.
+ */
+public class MappedLevelLoader implements LevelLoader {
+    @Override
+    public ByteBuffer load(FileHandle file) {
+        if (file.type() == Files.FileType.Classpath || !file.file().exists()) return ByteBuffer.wrap(file.readBytes());
+
+        // The mapping stays valid after the channel is closed
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.file(), "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't map level file " + file, e);
+        }
+    }
+}
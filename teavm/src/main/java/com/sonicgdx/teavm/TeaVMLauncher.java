@@ -13,6 +13,9 @@ public class TeaVMLauncher {
         // change these to both 0 to use all available space, or both -1 for the canvas size.
         config.width = 640;
         config.height = 480;
-        new TeaApplication(new Game(), config);
+        Game game = new Game();
+        // Floats and longs are slow in JavaScript, so the physics only uses ints
+        game.fixedPointPhysics = true;
+        new TeaApplication(game, config);
     }
 }